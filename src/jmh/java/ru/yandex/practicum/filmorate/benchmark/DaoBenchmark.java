@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение фильмов и общих друзей через DAO на заполненной H2.
+ * Размер данных задаётся параметрами, например: -p films=10000 -p users=5000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DaoBenchmark {
+    @Param("1000")
+    private int films;
+    @Param("1000")
+    private int users;
+    @Param("20")
+    private int likesPerUser;
+    @Param("20")
+    private int friendsPerUser;
+
+    private SeededApplication app;
+    private FilmDao filmDao;
+    private FriendDao friendDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = SeededApplication.start(films, users, likesPerUser, friendsPerUser);
+        filmDao = app.bean(FilmDao.class);
+        friendDao = app.bean(FriendDao.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.close();
+    }
+
+    @Benchmark
+    public List<Film> getFilms() {
+        return filmDao.getFilms();
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmDao.getTopFilms(10);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return friendDao.getCommonFriends(1 + random.nextInt(users), 1 + random.nextInt(users));
+    }
+}
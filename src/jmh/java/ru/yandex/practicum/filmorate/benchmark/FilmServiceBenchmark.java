@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Создание и обновление фильма через DBFilmService вместе с жанрами, в транзакции.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmServiceBenchmark {
+    @Param("1000")
+    private int films;
+    @Param("1000")
+    private int users;
+
+    private SeededApplication app;
+    private FilmService filmService;
+    private final AtomicInteger nextFilm = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = SeededApplication.start(films, users, 10, 10);
+        filmService = app.bean(FilmService.class);
+        nextFilm.set(films + 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.close();
+    }
+
+    @Benchmark
+    public Film create() {
+        return filmService.create(SeededApplication.film(nextFilm.getAndIncrement()));
+    }
+
+    @Benchmark
+    public Film update() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = 1 + random.nextInt(films);
+        Film film = SeededApplication.film(id);
+        film.setId(id);
+        film.setGenres(Set.of(new Genre(1 + random.nextInt(6), null)));
+        return filmService.update(film);
+    }
+}
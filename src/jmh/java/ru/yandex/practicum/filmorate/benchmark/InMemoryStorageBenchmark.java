@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.storage.InMemoryStorage.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Топ фильмов в памяти: id из рейтинга лайков и фильмы из хранилища по этим id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemoryStorageBenchmark {
+    @Param("1000")
+    private int films;
+    @Param("1000")
+    private int users;
+    @Param("20")
+    private int likesPerUser;
+
+    private InMemoryFilmStorage storage;
+    private PopularityLeaderboard leaderboard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = new InMemoryFilmStorage();
+        leaderboard = new PopularityLeaderboard();
+        for (int i = 1; i <= films; i++) {
+            storage.createFilm(SeededApplication.film(i));
+        }
+        Random random = new Random(42);
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                int filmId = 1 + random.nextInt(films);
+                if (storage.getById(filmId).getLikes().add(userId)) {
+                    leaderboard.increment(filmId);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return leaderboard.top(10).stream()
+                .map(storage::getById)
+                .collect(Collectors.toList());
+    }
+}
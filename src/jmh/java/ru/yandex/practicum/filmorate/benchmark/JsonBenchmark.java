@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация и разбор Film и User тем же ObjectMapper, что собирает Spring Boot.
+ * Параметр setSize — число лайков фильма и друзей пользователя.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+    @Param({"0", "100"})
+    private int setSize;
+
+    private ObjectMapper mapper;
+    private Film film;
+    private User user;
+    private byte[] filmJson;
+    private byte[] userJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        film = SeededApplication.film(1);
+        film.setId(1);
+        user = SeededApplication.user(1);
+        user.setId(1);
+        for (int i = 1; i <= setSize; i++) {
+            film.getLikes().add(i);
+            user.getFriends().add(i);
+        }
+        filmJson = mapper.writeValueAsBytes(film);
+        userJson = mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public Film filmRoundTrip() throws IOException {
+        return mapper.readValue(mapper.writeValueAsBytes(film), Film.class);
+    }
+
+    @Benchmark
+    public User userRoundTrip() throws IOException {
+        return mapper.readValue(mapper.writeValueAsBytes(user), User.class);
+    }
+
+    @Benchmark
+    public Film readFilm() throws IOException {
+        return mapper.readValue(filmJson, Film.class);
+    }
+
+    @Benchmark
+    public User readUser() throws IOException {
+        return mapper.readValue(userJson, User.class);
+    }
+}
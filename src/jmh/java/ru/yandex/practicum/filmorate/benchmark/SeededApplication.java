@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Приложение без веб-слоя на отдельной H2 в памяти, заполненное через сервисы,
+ * чтобы индексы в памяти совпадали с данными в БД. Данные генерируются с фиксированным seed.
+ */
+final class SeededApplication implements AutoCloseable {
+    private static final long SEED = 42;
+
+    private final ConfigurableApplicationContext context;
+
+    private SeededApplication(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    static SeededApplication start(int films, int users, int likesPerUser, int friendsPerUser) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "logging.level.ru.yandex.practicum=warn")
+                .run();
+        SeededApplication app = new SeededApplication(context);
+        app.seed(films, users, likesPerUser, friendsPerUser);
+        return app;
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Фильм, как его получает контроллер из JSON: с пустым, а не null множеством лайков.
+     */
+    static Film film(int number) {
+        Set<Genre> genres = new LinkedHashSet<>();
+        genres.add(new Genre(1 + number % 6, null));
+        genres.add(new Genre(1 + (number + 2) % 6, null));
+        Film film = new Film();
+        film.setName("Film " + number);
+        film.setDescription("Benchmark film number " + number);
+        film.setReleaseDate(LocalDate.of(1990, 1, 1).plusDays(number % 10_000));
+        film.setDuration(80 + number % 90);
+        film.setMpa(new Mpa(1 + number % 5, null));
+        film.setGenres(genres);
+        return film;
+    }
+
+    static User user(int number) {
+        User user = new User();
+        user.setEmail("user" + number + "@bench.ru");
+        user.setLogin("user" + number);
+        user.setName("User " + number);
+        user.setBirthday(LocalDate.of(1970, 1, 1).plusDays(number % 15_000));
+        return user;
+    }
+
+    private void seed(int films, int users, int likesPerUser, int friendsPerUser) {
+        FilmService filmService = bean(FilmService.class);
+        UserService userService = bean(UserService.class);
+        Random random = new Random(SEED);
+
+        List<Film> newFilms = new ArrayList<>(films);
+        for (int i = 1; i <= films; i++) {
+            newFilms.add(film(i));
+        }
+        filmService.createBatch(newFilms);
+
+        List<User> newUsers = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            newUsers.add(user(i));
+        }
+        userService.createBatch(newUsers);
+
+        List<FilmLike> likes = new ArrayList<>();
+        List<Friendship> friendships = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                // квадрат смещает лайки к первым фильмам, как у реальной популярности
+                double skewed = random.nextDouble() * random.nextDouble();
+                likes.add(new FilmLike(1 + (int) (skewed * films), userId));
+            }
+            for (int i = 0; i < friendsPerUser; i++) {
+                int friendId = 1 + random.nextInt(users);
+                if (friendId != userId) {
+                    friendships.add(new Friendship(userId, friendId));
+                }
+            }
+        }
+        filmService.addLikes(likes);
+        userService.addFriends(friendships);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Условные GET-запросы: If-None-Match сравнивается с ETag до обращения к сервису,
+ * поэтому при совпадении ответ 304 отдаётся без запросов к БД.
+ * If-None-Match: * совпадает с любым представлением, только если оно есть: сначала загружается тело,
+ * и для отсутствующей сущности сервис отвечает 404, а не 304.
+ */
+final class ConditionalResponses {
+    /**
+     * Ответы, которые клиент может хранить, но обязан перепроверять по ETag.
+     */
+    static final CacheControl REVALIDATE = CacheControl.noCache();
+    /**
+     * Справочники жанров и рейтингов не меняются во время работы приложения.
+     */
+    static final CacheControl REFERENCE = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
+    private ConditionalResponses() {
+    }
+
+    static <T> ResponseEntity<T> ifNoneMatch(String ifNoneMatch, String etag, CacheControl cacheControl,
+                                             Supplier<T> body) {
+        if (matches(ifNoneMatch, etag)) {
+            return notModified(etag, cacheControl);
+        }
+        T value = body.get();
+        return matchesAny(ifNoneMatch) ? notModified(etag, cacheControl) : ok(etag, cacheControl, value);
+    }
+
+    /**
+     * То же для асинхронных контроллеров: при совпадении ETag тело не запрашивается у исполнителя.
+     */
+    static <T> CompletableFuture<ResponseEntity<T>> ifNoneMatchAsync(String ifNoneMatch, String etag,
+                                                                     CacheControl cacheControl,
+                                                                     Supplier<CompletableFuture<T>> body) {
+        if (matches(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(notModified(etag, cacheControl));
+        }
+        return body.get().thenApply(value -> matchesAny(ifNoneMatch)
+                ? notModified(etag, cacheControl)
+                : ok(etag, cacheControl, value));
+    }
+
+    /**
+     * Слабое сравнение, как требует RFC 7232 для If-None-Match: префикс W/ не учитывается.
+     * Звёздочка здесь не совпадает: существование сущности проверяет {@link #matchesAny}.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-None-Match: * — совпадение с любым существующим представлением.
+     */
+    static boolean matchesAny(String ifNoneMatch) {
+        return ifNoneMatch != null && ifNoneMatch.trim().equals("*");
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag, CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+    }
+
+    private static <T> ResponseEntity<T> ok(String etag, CacheControl cacheControl, T value) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(value);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.service.ExportService;
+
+@RestController
+@RequestMapping("/export")
+@Slf4j
+@RequiredArgsConstructor
+public class ExportController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private final ExportService exportService;
+
+    @GetMapping("/films.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        return ndjson(exportService::exportFilms);
+    }
+
+    @GetMapping("/users.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ndjson(exportService::exportUsers);
+    }
+
+    @GetMapping("/likes.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportLikes() {
+        return ndjson(exportService::exportLikes);
+    }
+
+    @GetMapping("/friendship.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportFriendship() {
+        return ndjson(exportService::exportFriendship);
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
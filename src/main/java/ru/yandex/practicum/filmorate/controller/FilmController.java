@@ -2,54 +2,103 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.service.DBFilmService;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.JdbcExecutor;
+import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/films")
 @Slf4j
 @RequiredArgsConstructor
 public class FilmController {
-    private final DBFilmService filmService;
+    private final FilmService filmService;
+    private final EntityVersions versions;
+    private final JdbcExecutor jdbcExecutor;
 
     @PostMapping
-    public Film create(@Valid @RequestBody Film film) {
-        return filmService.create(film);
+    public CompletableFuture<Film> create(@Valid @RequestBody Film film) {
+        return jdbcExecutor.supply(() -> filmService.create(film));
     }
 
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
-        return filmService.update(film);
+    public CompletableFuture<Film> update(@Valid @RequestBody Film film) {
+        return jdbcExecutor.supply(() -> filmService.update(film));
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<List<BatchItemResult>> createBatch(@RequestBody List<Film> films) {
+        return jdbcExecutor.supply(() -> filmService.createBatch(films));
+    }
+
+    @PutMapping("/likes/batch")
+    public CompletableFuture<List<BatchItemResult>> addLikes(@RequestBody List<FilmLike> likes) {
+        return jdbcExecutor.supply(() -> filmService.addLikes(likes));
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public void addLike(@PathVariable("id") Integer id, @PathVariable("userId") Integer userId) {
-        filmService.addLike(id, userId);
+    public CompletableFuture<Void> addLike(@PathVariable("id") Integer id, @PathVariable("userId") Integer userId) {
+        return jdbcExecutor.run(() -> filmService.addLike(id, userId));
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public void deleteLike(@PathVariable("id") Integer id, @PathVariable("userId") Integer userId) {
-        filmService.deleteLike(id, userId);
+    public CompletableFuture<Void> deleteLike(@PathVariable("id") Integer id, @PathVariable("userId") Integer userId) {
+        return jdbcExecutor.run(() -> filmService.deleteLike(id, userId));
     }
 
+    @GetMapping(params = {"!limit", "!genreId", "!mpaId", "!yearFrom", "!yearTo", "!sort", "!after"})
+    public CompletableFuture<List<Film>> getFilms() {
+        return jdbcExecutor.supply(filmService::getFilms);
+    }
+
+    /**
+     * Страница фильмов с фасетами; без параметров страницы и фасетов отдаётся весь список.
+     */
     @GetMapping
-    public List<Film> getFilms() {
-        return filmService.getFilms();
+    public CompletableFuture<Page<Film>> getFilmsPage(
+            @RequestParam(value = "genreId", required = false) Integer genreId,
+            @RequestParam(value = "mpaId", required = false) Integer mpaId,
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") Integer limit) {
+        return jdbcExecutor.supply(() -> filmService.getFilmsPage(
+                FilmFilter.of(genreId, mpaId, yearFrom, yearTo, sort, after), limit));
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<List<Film>> search(
+            @RequestParam(value = "q", defaultValue = "") String query,
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        return jdbcExecutor.supply(() -> filmService.search(query, limit));
     }
 
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable("id") Integer filmId) {
-        return filmService.getFilm(filmId);
+    public CompletableFuture<ResponseEntity<Film>> getFilmById(
+            @PathVariable("id") Integer filmId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatchAsync(ifNoneMatch, versions.filmETag(filmId),
+                ConditionalResponses.REVALIDATE, () -> jdbcExecutor.supply(() -> filmService.getFilm(filmId)));
     }
 
     @GetMapping("/popular")
-    public List<Film> getTopFilms(
-            @Positive @RequestParam(value = "count", defaultValue = "10") Integer count) {
-        return filmService.getTopFilms(count);
+    public CompletableFuture<ResponseEntity<List<Film>>> getTopFilms(
+            @Positive @RequestParam(value = "count", defaultValue = "10") Integer count,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatchAsync(ifNoneMatch, versions.catalogETag(),
+                ConditionalResponses.REVALIDATE, () -> jdbcExecutor.supply(() -> filmService.getTopFilms(count)));
     }
 }
\ No newline at end of file
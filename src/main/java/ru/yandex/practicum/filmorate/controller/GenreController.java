@@ -2,12 +2,16 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.DBGenreService;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
 
 import java.util.List;
 
@@ -17,14 +21,19 @@ import java.util.List;
 @RequiredArgsConstructor
 public class GenreController {
     private final DBGenreService genreService;
+    private final EntityVersions versions;
 
     @GetMapping("/{id}")
-    public Genre getGenre(@PathVariable Integer id) {
-        return genreService.getGenre(id);
+    public ResponseEntity<Genre> getGenre(@PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.referenceETag(),
+                ConditionalResponses.REFERENCE, () -> genreService.getGenre(id));
     }
 
     @GetMapping
-    public List<Genre> getAllGenres() {
-        return genreService.getAllGenres();
+    public ResponseEntity<List<Genre>> getAllGenres(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.referenceETag(),
+                ConditionalResponses.REFERENCE, genreService::getAllGenres);
     }
 }
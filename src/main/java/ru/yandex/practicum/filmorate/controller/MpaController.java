@@ -2,12 +2,16 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.DBMpaService;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
 
 import java.util.List;
 
@@ -17,14 +21,19 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MpaController {
     private final DBMpaService mpaService;
+    private final EntityVersions versions;
 
     @GetMapping("/{id}")
-    public Mpa getMpa(@PathVariable int id) {
-        return mpaService.getMpa(id);
+    public ResponseEntity<Mpa> getMpa(@PathVariable int id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.referenceETag(),
+                ConditionalResponses.REFERENCE, () -> mpaService.getMpa(id));
     }
 
     @GetMapping
-    public List<Mpa> getAllMpa() {
-        return mpaService.getAllMpa();
+    public ResponseEntity<List<Mpa>> getAllMpa(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatch(ifNoneMatch, versions.referenceETag(),
+                ConditionalResponses.REFERENCE, mpaService::getAllMpa);
     }
 }
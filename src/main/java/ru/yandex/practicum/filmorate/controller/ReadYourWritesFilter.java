@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.storage.ReadYourWrites;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Read-your-writes при чтении с реплик: изменяющий запрос выдаёт клиенту cookie с моментом,
+ * до которого его запросы читают с основной БД (filmorate.datasource.replicas.sticky-ms от начала запроса).
+ * Изменяющие запросы и запросы с действующей cookie привязываются к основной БД.
+ */
+@Component
+@ConditionalOnProperty(value = "filmorate.datasource.replicas.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE = "filmorate-primary-until";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final long stickyMs;
+
+    public ReadYourWritesFilter(@Value("${filmorate.datasource.replicas.sticky-ms}") long stickyMs) {
+        this.stickyMs = stickyMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(now + stickyMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) ((stickyMs + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        if (write || pinnedUntil(request) > now) {
+            ReadYourWrites.pin();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.unpin();
+        }
+    }
+
+    private static long pinnedUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
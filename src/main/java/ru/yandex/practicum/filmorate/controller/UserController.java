@@ -2,57 +2,104 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.service.DBUserService;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.JdbcExecutor;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
 @Slf4j
 @RequiredArgsConstructor
 public class UserController {
-    private final DBUserService userService;
+    private final UserService userService;
+    private final FilmService filmService;
+    private final EntityVersions versions;
+    private final JdbcExecutor jdbcExecutor;
 
     @PostMapping
-    public User create(@Valid @RequestBody User user) {
-        return userService.create(user);
+    public CompletableFuture<User> create(@Valid @RequestBody User user) {
+        return jdbcExecutor.supply(() -> userService.create(user));
     }
 
     @PutMapping
-    public User update(@Valid @RequestBody User user) {
-        return userService.update(user);
+    public CompletableFuture<User> update(@Valid @RequestBody User user) {
+        return jdbcExecutor.supply(() -> userService.update(user));
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<List<BatchItemResult>> createBatch(@RequestBody List<User> users) {
+        return jdbcExecutor.supply(() -> userService.createBatch(users));
+    }
+
+    @PutMapping("/friends/batch")
+    public CompletableFuture<List<BatchItemResult>> addFriends(@RequestBody List<Friendship> friendships) {
+        return jdbcExecutor.supply(() -> userService.addFriends(friendships));
     }
 
     @PutMapping("/{id}/friends/{friendId}")
-    public void addFriend(@PathVariable("id") Integer id, @PathVariable("friendId") Integer friendId) {
-        userService.addFriend(id, friendId);
+    public CompletableFuture<Void> addFriend(@PathVariable("id") Integer id,
+                                             @PathVariable("friendId") Integer friendId) {
+        return jdbcExecutor.run(() -> userService.addFriend(id, friendId));
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
-    public void deleteFriend(@PathVariable("id") Integer id, @PathVariable("friendId") Integer friendId) {
-        userService.deleteFriend(id, friendId);
+    public CompletableFuture<Void> deleteFriend(@PathVariable("id") Integer id,
+                                                @PathVariable("friendId") Integer friendId) {
+        return jdbcExecutor.run(() -> userService.deleteFriend(id, friendId));
     }
 
     @GetMapping
-    public List<User> getUsers() {
-        return userService.getUsers();
+    public CompletableFuture<List<User>> getUsers() {
+        return jdbcExecutor.supply(userService::getUsers);
+    }
+
+    @GetMapping(params = "limit")
+    public CompletableFuture<Page<User>> getUsersPage(
+            @RequestParam(value = "after", required = false) String after, @RequestParam("limit") Integer limit) {
+        return jdbcExecutor.supply(() -> userService.getUsersPage(after, limit));
     }
 
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable("id") Integer userId) {
-        return userService.getUser(userId);
+    public CompletableFuture<ResponseEntity<User>> getUserById(
+            @PathVariable("id") Integer userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return ConditionalResponses.ifNoneMatchAsync(ifNoneMatch, versions.userETag(userId),
+                ConditionalResponses.REVALIDATE, () -> jdbcExecutor.supply(() -> userService.getUser(userId)));
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getUserFriends(@PathVariable("id") Integer userId) {
-        return userService.getUserFriends(userId);
+    public CompletableFuture<List<User>> getUserFriends(@PathVariable("id") Integer userId) {
+        return jdbcExecutor.supply(() -> userService.getUserFriends(userId));
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public CompletableFuture<List<User>> getFriendSuggestions(
+            @PathVariable("id") Integer id, @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        return jdbcExecutor.supply(() -> userService.getFriendSuggestions(id, limit));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public List<User> getCommonFriends(@PathVariable("id") Integer id, @PathVariable("otherId") Integer otherId) {
-        return userService.getCommonFriends(id, otherId);
+    public CompletableFuture<List<User>> getCommonFriends(@PathVariable("id") Integer id,
+                                                          @PathVariable("otherId") Integer otherId) {
+        return jdbcExecutor.supply(() -> userService.getCommonFriends(id, otherId));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public CompletableFuture<List<Film>> getRecommendations(
+            @PathVariable("id") Integer id, @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        return jdbcExecutor.supply(() -> filmService.getRecommendations(id, limit));
     }
 }
@@ -1,11 +1,15 @@
 package ru.yandex.practicum.filmorate.exception;
 
+/**
+ * Отсутствие запрошенной сущности, ответ 404. Выбрасывается в обычном потоке обработки запроса,
+ * поэтому стек вызовов не заполняется.
+ */
 public class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public NotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
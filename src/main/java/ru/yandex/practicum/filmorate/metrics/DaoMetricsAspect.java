@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймер filmorate.dao с гистограммой перцентилей на каждый публичный метод DAO.
+ * Теги: класс, метод и исключение (none, если вызов завершился успешно).
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class DaoMetricsAspect {
+    static final String TIMER_NAME = "filmorate.dao";
+
+    private final MeterRegistry registry;
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+    // справочники отдаются из памяти на каждую строку фильма, таймер там дороже самого вызова
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage.dao..*.*(..)) "
+            + "&& !within(ru.yandex.practicum.filmorate.storage.dao.film.impl.ReferenceDataRegistry)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String type = joinPoint.getTarget().getClass().getSimpleName();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            successTimers.computeIfAbsent(method, m -> timer(type, m, "none"))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(type, method, e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(String type, Method method, String exception) {
+        return Timer.builder(TIMER_NAME)
+                .description("DAO method execution time")
+                .tag("class", type)
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
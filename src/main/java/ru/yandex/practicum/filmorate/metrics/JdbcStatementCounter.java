@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Счётчик JDBC-запросов, выполненных в рамках HTTP-запроса. Счётчик привязан к потоку;
+ * задачи, которые запрос передаёт в другие потоки, переносят его через {@link #propagate(Runnable)}.
+ * Вне HTTP-запроса (инициализация, фоновые задачи) запросы не считаются.
+ */
+public final class JdbcStatementCounter {
+    private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+    private JdbcStatementCounter() {
+    }
+
+    static void bind(AtomicInteger count) {
+        COUNT.set(count);
+    }
+
+    static void unbind() {
+        COUNT.remove();
+    }
+
+    static void increment() {
+        AtomicInteger count = COUNT.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return число запросов с начала текущего HTTP-запроса
+     */
+    public static int current() {
+        AtomicInteger count = COUNT.get();
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return задача, которая считает запросы в счётчик вызывающего потока
+     */
+    public static Runnable propagate(Runnable task) {
+        AtomicInteger count = COUNT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    COUNT.remove();
+                } else {
+                    COUNT.set(previous);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Считает JDBC-запросы каждого HTTP-запроса: пишет их число в заголовок X-Jdbc-Statements
+ * и в распределение filmorate.jdbc.statements с тегами method и uri (шаблон пути).
+ * Рост значения у эндпоинта — признак запросов N+1.
+ * У асинхронных запросов счётчик хранится в атрибуте запроса и итог записывается
+ * в конце асинхронного прохода.
+ */
+@Component
+@RequiredArgsConstructor
+public class JdbcStatementMetricsFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-Jdbc-Statements";
+    static final String SUMMARY_NAME = "filmorate.jdbc.statements";
+    private static final String COUNTER_ATTRIBUTE = JdbcStatementMetricsFilter.class.getName() + ".COUNTER";
+
+    private final MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AtomicInteger counter = (AtomicInteger) request.getAttribute(COUNTER_ATTRIBUTE);
+        if (counter == null) {
+            counter = new AtomicInteger();
+            request.setAttribute(COUNTER_ATTRIBUTE, counter);
+        }
+        JdbcStatementCounter.bind(counter);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            JdbcStatementCounter.unbind();
+            // асинхронный запрос ещё не завершён: итог запишет асинхронный проход
+            if (!isAsyncStarted(request)) {
+                record(request, response, counter.get());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, int statements) {
+        // у ответов без тела заголовок ещё можно выставить здесь, остальные получают его в HeaderAdvice
+        if (!response.isCommitted()) {
+            response.setIntHeader(HEADER, statements);
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(SUMMARY_NAME)
+                .description("JDBC statements executed per HTTP request")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(statements);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Выставляет заголовок перед записью тела, пока ответ ещё не отправлен.
+     */
+    @ControllerAdvice
+    static class HeaderAdvice implements ResponseBodyAdvice<Object> {
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            response.getHeaders().set(HEADER, String.valueOf(JdbcStatementCounter.current()));
+            return body;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает DataSource приложения в {@link StatementCountingDataSource}.
+ */
+@Component
+public class StatementCountingConfig implements BeanPostProcessor {
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof StatementCountingDataSource)) {
+            return new StatementCountingDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+}
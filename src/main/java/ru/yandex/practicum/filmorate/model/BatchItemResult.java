@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат обработки одного элемента пакетного запроса.
+ * Результаты возвращаются в том же порядке, что и элементы запроса.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private boolean success;
+    private Integer id;
+    private String error;
+
+    public static BatchItemResult ok(Integer id) {
+        return new BatchItemResult(true, id, null);
+    }
+
+    public static BatchItemResult failed(String error) {
+        return new BatchItemResult(false, null, error);
+    }
+}
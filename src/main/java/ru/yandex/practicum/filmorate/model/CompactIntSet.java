@@ -0,0 +1,218 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Компактное множество int для лайков и друзей. Небольшие множества хранятся
+ * отсортированным int[] (4 байта на элемент), плотные — битовой картой от base
+ * (1 бит на каждое значение диапазона). Массивы выделяются при первом добавлении.
+ * В JSON сериализуется как обычный массив чисел.
+ * Операции синхронизированы на самом множестве, итератор идёт по снимку.
+ */
+public final class CompactIntSet extends AbstractSet<Integer> {
+    private static final int[] EMPTY = new int[0];
+    /**
+     * Меньшие множества всегда хранятся массивом.
+     */
+    private static final int MIN_BITMAP_SIZE = 64;
+
+    private int[] values = EMPTY;
+    private long[] bits;
+    private int base;
+    private int size;
+
+    public CompactIntSet() {
+    }
+
+    public CompactIntSet(int... values) {
+        for (int value : values) {
+            add(value);
+        }
+    }
+
+    public synchronized boolean add(int value) {
+        if (bits != null) {
+            int offset = value - base;
+            if (offset >= 0 && offset < bits.length * 64) {
+                return setBit(offset);
+            }
+            int min = Math.min(base, value);
+            int max = Math.max(base + bits.length * 64 - 1, value);
+            if (bitmapWords(min, max) * 2L <= size + 1) {
+                growBitmap(min, max);
+                return setBit(value - base);
+            }
+            // далёкое значение сделало бы карту разреженной: возвращаемся к массиву
+            toArray(toIntArray());
+        }
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int position = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = value;
+        size++;
+        if (size >= MIN_BITMAP_SIZE && bitmapWords(values[0], values[size - 1]) * 2L <= size) {
+            toBitmap();
+        }
+        return true;
+    }
+
+    public synchronized boolean remove(int value) {
+        if (bits != null) {
+            int offset = value - base;
+            if (offset < 0 || offset >= bits.length * 64 || (bits[offset >>> 6] & 1L << offset) == 0) {
+                return false;
+            }
+            bits[offset >>> 6] &= ~(1L << offset);
+            size--;
+            // массив должен стать вчетверо меньше карты, чтобы не переключаться туда-обратно
+            if (size * 2L < bits.length) {
+                toArray(toIntArray());
+            }
+            return true;
+        }
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+        if (size == 0) {
+            values = EMPTY;
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(int value) {
+        if (bits != null) {
+            int offset = value - base;
+            return offset >= 0 && offset < bits.length * 64 && (bits[offset >>> 6] & 1L << offset) != 0;
+        }
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * @return отсортированный снимок элементов
+     */
+    public synchronized int[] toIntArray() {
+        if (bits == null) {
+            return Arrays.copyOf(values, size);
+        }
+        int[] result = new int[size];
+        int index = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                result[index++] = base + word * 64 + Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && remove(((Integer) value).intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains(((Integer) value).intValue());
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        values = EMPTY;
+        bits = null;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        int[] snapshot = toIntArray();
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < snapshot.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (index >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[index++];
+            }
+
+            @Override
+            public void remove() {
+                if (index == 0) {
+                    throw new IllegalStateException();
+                }
+                CompactIntSet.this.remove(snapshot[index - 1]);
+            }
+        };
+    }
+
+    private void growBitmap(int min, int max) {
+        int newBase = min & ~63;
+        long[] grown = new long[bitmapWords(newBase, max)];
+        System.arraycopy(bits, 0, grown, (base - newBase) >>> 6, bits.length);
+        bits = grown;
+        base = newBase;
+    }
+
+    private boolean setBit(int offset) {
+        long mask = 1L << offset;
+        if ((bits[offset >>> 6] & mask) != 0) {
+            return false;
+        }
+        bits[offset >>> 6] |= mask;
+        size++;
+        return true;
+    }
+
+    private void toBitmap() {
+        base = values[0] & ~63;
+        bits = new long[bitmapWords(base, values[size - 1])];
+        for (int i = 0; i < size; i++) {
+            int offset = values[i] - base;
+            bits[offset >>> 6] |= 1L << offset;
+        }
+        values = EMPTY;
+    }
+
+    private void toArray(int[] sorted) {
+        bits = null;
+        base = 0;
+        values = sorted;
+        size = sorted.length;
+    }
+
+    /**
+     * Число слов битовой карты для диапазона [min & ~63, max].
+     */
+    private static int bitmapWords(int min, int max) {
+        return (int) (((long) max - (min & ~63)) / 64 + 1);
+    }
+}
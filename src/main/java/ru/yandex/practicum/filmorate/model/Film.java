@@ -8,7 +8,6 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -35,5 +34,5 @@ public class Film {
     private Mpa mpa;
     private Set<Genre> genres;
     @Setter(AccessLevel.NONE)
-    private Set<Integer> likes = new HashSet<>();
+    private CompactIntSet likes = new CompactIntSet();
 }
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Условия выборки страницы фильмов: фасеты (незаданные не ограничивают выборку), порядок
+ * и позиция после последнего фильма предыдущей страницы.
+ * По умолчанию фильмы идут по возрастанию id, при сортировке popular — по убыванию лайков, затем по id.
+ */
+@Data
+@Builder
+public class FilmFilter {
+    public static final String SORT_POPULAR = "popular";
+    /**
+     * Допустимые годы фасета: за пределами годы не переводятся в даты, а фильмов там всё равно нет.
+     */
+    public static final int MIN_YEAR = 1;
+    public static final int MAX_YEAR = 9999;
+
+    private Integer genreId;
+    private Integer mpaId;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private boolean popular;
+    private int afterId;
+    /**
+     * Лайки последнего фильма предыдущей страницы при сортировке popular, null для первой страницы.
+     */
+    private Integer afterLikes;
+
+    /**
+     * Фильтр из параметров запроса; after — курсор из {@link Page#getNextCursor()} предыдущей страницы
+     * с той же сортировкой.
+     */
+    public static FilmFilter of(Integer genreId, Integer mpaId, Integer yearFrom, Integer yearTo,
+                                String sort, String after) {
+        checkYear("yearFrom", yearFrom);
+        checkYear("yearTo", yearTo);
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new ValidationException(String.format("yearFrom %d is after yearTo %d", yearFrom, yearTo));
+        }
+        if (sort != null && !SORT_POPULAR.equals(sort)) {
+            throw new ValidationException(String.format("Unknown sort: %s", sort));
+        }
+        boolean popular = SORT_POPULAR.equals(sort);
+        int[] position = Page.decodeCursor(after, popular ? 2 : 1);
+        FilmFilterBuilder filter = FilmFilter.builder()
+                .genreId(genreId)
+                .mpaId(mpaId)
+                .yearFrom(yearFrom)
+                .yearTo(yearTo)
+                .popular(popular);
+        if (position != null) {
+            filter.afterId(position[position.length - 1]);
+            filter.afterLikes(popular ? position[0] : null);
+        }
+        return filter.build();
+    }
+
+    private static void checkYear(String name, Integer year) {
+        if (year != null && (year < MIN_YEAR || year > MAX_YEAR)) {
+            throw new ValidationException(String.format("%s must be between %d and %d", name, MIN_YEAR, MAX_YEAR));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FilmLike {
+    @NotNull(message = "Film ID must be completed")
+    private Integer filmId;
+    @NotNull(message = "User ID must be completed")
+    private Integer userId;
+}
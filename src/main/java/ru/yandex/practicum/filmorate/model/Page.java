@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Страница выдачи для курсорной (keyset) пагинации.
+ * nextCursor — непрозрачный курсор следующей страницы, null если страница последняя.
+ */
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    public static final int MAX_LIMIT = 1000;
+
+    private List<T> items;
+    private String nextCursor;
+
+    /**
+     * Собирает страницу из выборки размером до limit + 1 строк: лишняя строка
+     * означает, что следующая страница существует.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> idGetter) {
+        return ofCursor(rows, limit, item -> encodeCursor(idGetter.applyAsInt(item)));
+    }
+
+    /**
+     * То же, что {@link #of}, курсор следующей страницы строится из последнего элемента функцией cursorOf.
+     */
+    public static <T> Page<T> ofCursor(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    /**
+     * Курсор из ключей сортировки последнего элемента страницы.
+     */
+    public static String encodeCursor(int... keys) {
+        String joined = Arrays.stream(keys)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(":"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int decodeCursor(String cursor) {
+        int[] keys = decodeCursor(cursor, 1);
+        return keys == null ? 0 : keys[0];
+    }
+
+    /**
+     * @return keys ключей сортировки из курсора или null, если курсор не задан
+     */
+    public static int[] decodeCursor(String cursor, int keys) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != keys) {
+                throw new IllegalArgumentException("Unexpected number of cursor keys");
+            }
+            return Arrays.stream(parts).mapToInt(Integer::parseInt).toArray();
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(String.format("Invalid page cursor: %s", cursor), e);
+        }
+    }
+
+    public static void checkLimit(Integer limit) {
+        if (limit == null || limit <= 0 || limit > MAX_LIMIT) {
+            throw new ValidationException(
+                    String.format("Page limit must be between 1 and %d", MAX_LIMIT));
+        }
+    }
+}
@@ -7,8 +7,6 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PastOrPresent;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * электронная почта не может быть пустой и должна содержать символ @;
@@ -32,5 +30,5 @@ public class User {
     @PastOrPresent(message = "Birthdate cannot be in the future")
     private LocalDate birthday;
     @Setter(AccessLevel.NONE)
-    private Set<Integer> friends = new HashSet<>();
+    private CompactIntSet friends = new CompactIntSet();
 }
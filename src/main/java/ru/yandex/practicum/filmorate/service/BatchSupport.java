@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Общие операции пакетных методов сервисов.
+ */
+public final class BatchSupport {
+    private BatchSupport() {
+    }
+
+    /**
+     * Сообщения о нарушенных ограничениях элемента через "; " или null, если элемент корректен.
+     */
+    public static String validationError(Validator validator, Object item) {
+        if (item == null) {
+            return "Item must be completed";
+        }
+        String error = validator.validate(item).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+        return error.isEmpty() ? null : error;
+    }
+
+    public static <T> List<List<T>> chunks(List<T> items, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            chunks.add(items.subList(from, Math.min(from + chunkSize, items.size())));
+        }
+        return chunks;
+    }
+}
@@ -3,103 +3,437 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
 import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
 
+import javax.annotation.PostConstruct;
+import javax.validation.Validator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
+@Profile("!in-memory")
 @Slf4j
-public class DBFilmService {
+public class DBFilmService implements FilmService {
+    private static final int LIKES_FETCH_SIZE = 1000;
+    private static final int FILMS_FETCH_SIZE = 1000;
+
     private final FilmDao filmDao;
     private final DBUserService userService;
     private final GenreDao genreDao;
     private final FilmLikesDao filmLikesDao;
+    private final MpaDao mpaDao;
+    private final Validator validator;
+    private final int batchChunkSize;
+    private final PopularityLeaderboard leaderboard = new PopularityLeaderboard();
+    private final FilmSimilarityModel similarity;
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final EntityVersions versions;
+    private final LikeWriteBuffer likeBuffer;
+    private final EntityCache cache;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public DBFilmService(@Qualifier("filmDaoImpl") FilmDao filmDao, DBUserService userService,
-                         GenreDao genreDao, FilmLikesDao filmLikesDao) {
+                         GenreDao genreDao, FilmLikesDao filmLikesDao, MpaDao mpaDao, Validator validator,
+                         @Value("${filmorate.batch.chunk-size}") int batchChunkSize,
+                         @Value("${filmorate.recommendations.neighbours}") int neighboursLimit,
+                         EntityVersions versions, Optional<LikeWriteBuffer> likeBuffer, EntityCache cache,
+                         PlatformTransactionManager transactionManager) {
         this.filmDao = filmDao;
         this.userService = userService;
         this.genreDao = genreDao;
         this.filmLikesDao = filmLikesDao;
+        this.mpaDao = mpaDao;
+        this.validator = validator;
+        this.batchChunkSize = batchChunkSize;
+        this.similarity = new FilmSimilarityModel(neighboursLimit);
+        this.versions = versions;
+        this.likeBuffer = likeBuffer.orElse(null);
+        this.cache = cache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void loadLeaderboard() {
+        leaderboard.clear();
+        filmDao.getLikesCounts().forEach(leaderboard::put);
+        log.info("Popularity leaderboard loaded");
+    }
+
+    @PostConstruct
+    public void loadSimilarity() {
+        similarity.clear();
+        filmLikesDao.streamLikes(LIKES_FETCH_SIZE, similarity::load);
+        similarity.rebuild();
+        log.info("Film similarity model loaded");
+    }
+
+    @PostConstruct
+    public void loadSearchIndex() {
+        searchIndex.clear();
+        filmDao.streamFilms(FILMS_FETCH_SIZE, this::index);
+        log.info("Film search index loaded: {} films", searchIndex.size());
+    }
+
+    /**
+     * Сверка модели похожести с лайками: списки соседей пересчитываются с нуля на копии,
+     * лайки в это время продолжают приниматься.
+     */
+    @Scheduled(fixedDelayString = "${filmorate.recommendations.rebuild-interval-ms}",
+            initialDelayString = "${filmorate.recommendations.rebuild-interval-ms}")
+    public void rebuildSimilarity() {
+        similarity.rebuild();
+        log.info("Film similarity model rebuilt");
     }
 
+    @Override
+    @Transactional
     public Film create(Film film) {
+        Set<Genre> genres = resolveGenres(film.getGenres());
         Film newFilm = filmDao.createFilm(film);
-        if (film.getGenres() == null || film.getGenres().isEmpty()) {
-            newFilm.setGenres(new HashSet<>());
-            log.info("The film {} has no genres.", film);
-        } else {
-            for (Genre genre : film.getGenres()) {
-                genreDao.addGenreInFilm(newFilm.getId(), genre.getId());
-            }
-            newFilm.setGenres(genreDao.getFilmGenres(film.getId()));
-        }
-        log.info("Film {} has been CREATED", film);
+        genreDao.addGenresInFilm(newFilm.getId(), genreIds(genres));
+        newFilm.setGenres(genres);
+        versions.filmUpdated(newFilm.getId());
+        TransactionHooks.afterCommit(() -> {
+            leaderboard.put(newFilm.getId(), 0);
+            index(newFilm);
+        });
+        log.info("Film {} has been CREATED", newFilm);
         return newFilm;
     }
 
+    @Override
+    @Transactional
     public Film update(Film film) {
-        if (film.getId() == null || !filmDao.checkFilmExist(film.getId())) {
+        if (film.getId() == null) {
             throw new NotFoundException("Can't update film with ID = null");
         }
+        filmDao.checkFilmExist(film.getId());
+        Set<Genre> genres = resolveGenres(film.getGenres());
+        Film updated = filmDao.updateFilm(film);
 
-        if (film.getGenres() == null || film.getGenres().isEmpty()) {
-            genreDao.deleteFilmGenre(film.getId());
-            film.setGenres(new HashSet<>());
-            log.info("The film {} has no genres.", film);
-        } else {
-            genreDao.deleteFilmGenre(film.getId());
-            for (Genre genre : film.getGenres()) {
-                genreDao.addGenreInFilm(film.getId(), genre.getId());
+        // меняются только отличающиеся жанры, совпадающие строки film_genres не трогаются
+        Set<Integer> newGenreIds = genreIds(genres);
+        Set<Integer> oldGenreIds = genreIds(genreDao.getFilmGenres(film.getId()));
+        genreDao.deleteGenresFromFilm(film.getId(), difference(oldGenreIds, newGenreIds));
+        genreDao.addGenresInFilm(film.getId(), difference(newGenreIds, oldGenreIds));
+
+        updated.setGenres(genres);
+        versions.filmUpdated(film.getId());
+        TransactionHooks.afterCommit(() -> index(updated));
+        log.info("Film {} has been UPDATED", updated);
+        return updated;
+    }
+
+    /**
+     * Пакетное создание фильмов. Сначала проверяются все элементы, затем корректные
+     * вставляются порциями по batchChunkSize строк, каждая порция вместе с жанрами — в своей транзакции.
+     * Результаты идут в порядке запроса.
+     */
+    @Override
+    public List<BatchItemResult> createBatch(List<Film> films) {
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Film> valid = new ArrayList<>();
+        Map<Film, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            String error = validateForBatch(film);
+            if (error != null) {
+                results[i] = BatchItemResult.failed(error);
+            } else {
+                valid.add(film);
+                positions.put(film, i);
+            }
+        }
+
+        int createdCount = 0;
+        for (List<Film> chunk : BatchSupport.chunks(valid, batchChunkSize)) {
+            // строки фильмов и их жанры порции фиксируются вместе
+            List<Film> created = transactionTemplate.execute(status -> createChunk(chunk, positions, results, status));
+            for (Film film : created) {
+                // createBatch может выполняться внутри внешней транзакции — тогда порция ещё не зафиксирована
+                TransactionHooks.afterCommit(() -> {
+                    leaderboard.put(film.getId(), 0);
+                    index(film);
+                });
+                results[positions.get(film)] = BatchItemResult.ok(film.getId());
+            }
+            createdCount += created.size();
+        }
+        log.info("Batch of {} films processed, {} CREATED", films.size(), createdCount);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Вставляет порцию фильмов с жанрами в текущей транзакции. Если БД отклонила порцию,
+     * она откатывается до точки сохранения и вставляется по одной строке, чтобы найти отклонённые.
+     */
+    private List<Film> createChunk(List<Film> chunk, Map<Film, Integer> positions, BatchItemResult[] results,
+                                   TransactionStatus status) {
+        List<Film> created = new ArrayList<>(chunk.size());
+        Object chunkSavepoint = status.createSavepoint();
+        try {
+            created.addAll(filmDao.createFilms(chunk));
+        } catch (DataAccessException e) {
+            status.rollbackToSavepoint(chunkSavepoint);
+            for (Film film : chunk) {
+                Object savepoint = status.createSavepoint();
+                try {
+                    created.add(filmDao.createFilm(film));
+                } catch (DuplicateKeyException ex) {
+                    status.rollbackToSavepoint(savepoint);
+                    results[positions.get(film)] = BatchItemResult.failed(
+                            String.format("Film with name '%s' already exists", film.getName()));
+                } catch (DataAccessException ex) {
+                    status.rollbackToSavepoint(savepoint);
+                    results[positions.get(film)] = BatchItemResult.failed("Film could not be saved");
+                }
+            }
+        }
+        genreDao.addGenresInFilms(created, batchChunkSize);
+        for (Film film : created) {
+            versions.filmUpdated(film.getId());
+        }
+        return created;
+    }
+
+    @Override
+    public List<BatchItemResult> addLikes(List<FilmLike> likes) {
+        BatchItemResult[] results = new BatchItemResult[likes.size()];
+        Set<Integer> filmIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (FilmLike like : likes) {
+            if (like != null) {
+                filmIds.add(like.getFilmId());
+                userIds.add(like.getUserId());
+            }
+        }
+        filmIds.remove(null);
+        userIds.remove(null);
+        Set<Integer> existingFilms = filmDao.findExistingIds(filmIds);
+        Set<Integer> existingUsers = userService.findExistingIds(userIds);
+
+        List<FilmLike> valid = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            String error = BatchSupport.validationError(validator, like);
+            if (error == null && !existingFilms.contains(like.getFilmId())) {
+                error = String.format("Film ID = %d does not exist", like.getFilmId());
+            }
+            if (error == null && !existingUsers.contains(like.getUserId())) {
+                error = String.format("User ID = %d does not exist", like.getUserId());
+            }
+            if (error != null) {
+                results[i] = BatchItemResult.failed(error);
+            } else {
+                valid.add(like);
+                positions.add(i);
             }
-            film.setGenres(genreDao.getFilmGenres(film.getId()));
         }
-        log.info("Film {} has been UPDATED", film);
-        return filmDao.updateFilm(film);
+
+        boolean[] inserted = likeBuffer == null ? filmLikesDao.likeAll(valid, batchChunkSize) : bufferLikes(valid);
+        for (int i = 0; i < valid.size(); i++) {
+            FilmLike like = valid.get(i);
+            if (inserted[i]) {
+                leaderboard.increment(like.getFilmId());
+                similarity.like(like.getFilmId(), like.getUserId());
+                versions.filmChanged(like.getFilmId());
+                results[positions.get(i)] = BatchItemResult.ok(null);
+            } else {
+                results[positions.get(i)] = BatchItemResult.failed(String.format(
+                        "The user with ID = %d has ALREADY LIKE the film with ID = %d",
+                        like.getUserId(), like.getFilmId()));
+            }
+        }
+        log.info("Batch of {} likes processed", likes.size());
+        return Arrays.asList(results);
     }
 
+    /**
+     * В режиме write-behind лайк сразу виден в топе и рекомендациях, а в БД попадает пакетом.
+     */
+    @Override
     public void addLike(Integer filmId, Integer userId) {
         filmDao.checkFilmExist(filmId);
-        userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        filmLikesDao.like(filmId, userId);
+        userService.checkUserExist(userId);
+        if (likeBuffer == null) {
+            filmLikesDao.like(filmId, userId);
+            similarity.like(filmId, userId);
+        } else if (!likeBuffer.submit(filmId, userId, true, () -> similarity.like(filmId, userId))) {
+            throw new AlreadyExistException(
+                    String.format("The user with ID = %d has ALREADY LIKE the film with ID = %d", userId, filmId));
+        }
+        leaderboard.increment(filmId);
+        versions.filmChanged(filmId);
         log.info("Film with ID = {} was LIKED by user with ID = {}", filmId, userId);
     }
 
+    @Override
     public void deleteLike(Integer filmId, Integer userId) {
         filmDao.checkFilmExist(filmId);
-        userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        filmLikesDao.unlike(filmId, userId);
+        userService.checkUserExist(userId);
+        boolean removed;
+        if (likeBuffer == null) {
+            removed = filmLikesDao.unlike(filmId, userId);
+            if (removed) {
+                similarity.unlike(filmId, userId);
+            }
+        } else {
+            removed = likeBuffer.submit(filmId, userId, false, () -> similarity.unlike(filmId, userId));
+        }
+        if (removed) {
+            leaderboard.decrement(filmId);
+            versions.filmChanged(filmId);
+        }
         log.info("Film with ID = {} was UNLIKED by user with ID = {}", filmId, userId);
     }
 
+    @Override
+    @Transactional(readOnly = true)
     public Film getFilm(Integer id) {
         filmDao.checkFilmExist(id);
-        Film film = filmDao.getById(id);
-        film.setGenres(genreDao.getFilmGenres(film.getId()));
+        Film film = cache.film(id, filmDao::getById);
         log.info("Get a film with ID = {}", id);
         return film;
     }
 
+    @Override
+    @Transactional(readOnly = true)
     public List<Film> getFilms() {
-        List<Film> films = new ArrayList<>();
-        for (Film film : filmDao.getFilms()) {
-            film.setGenres(genreDao.getFilmGenres(film.getId()));
-            films.add(film);
-        }
-        return films;
+        return filmDao.getFilms();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Film> getFilmsPage(FilmFilter filter, Integer limit) {
+        Page.checkLimit(limit);
+        log.info("Get page of {} films by {}", limit, filter);
+        return filmDao.findFilms(filter, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Film> getTopFilms(Integer count) {
         log.info("Get {} popular films", count);
-        return filmDao.getTopFilms(count);
+        return cache.films(leaderboard.top(count), filmDao::getByIds);
+    }
+
+    /**
+     * Рекомендации по совместным лайкам, из памяти.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getRecommendations(Integer userId, Integer limit) {
+        Page.checkLimit(limit);
+        userService.checkUserExist(userId);
+        log.info("Get {} film recommendations for the user with ID = {}", limit, userId);
+        return cache.films(similarity.recommend(userId, limit), filmDao::getByIds);
+    }
+
+    /**
+     * Поиск по названию и описанию из индекса в памяти, фильмы читаются через кэш.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> search(String query, Integer limit) {
+        Page.checkLimit(limit);
+        if (query.isBlank()) {
+            throw new ValidationException("Search query must not be blank");
+        }
+        log.info("Search {} films by query '{}'", limit, query);
+        return cache.films(searchIndex.search(query, limit), filmDao::getByIds);
+    }
+
+    private void index(Film film) {
+        searchIndex.put(film.getId(), film.getName(), film.getDescription());
+    }
+
+    private boolean[] bufferLikes(List<FilmLike> likes) {
+        boolean[] accepted = new boolean[likes.size()];
+        for (int i = 0; i < likes.size(); i++) {
+            int filmId = likes.get(i).getFilmId();
+            int userId = likes.get(i).getUserId();
+            accepted[i] = likeBuffer.submit(filmId, userId, true, () -> similarity.like(filmId, userId));
+        }
+        return accepted;
+    }
+
+    private String validateForBatch(Film film) {
+        String error = BatchSupport.validationError(validator, film);
+        if (error != null) {
+            return error;
+        }
+        if (film.getReleaseDate() == null) {
+            return "Release date must be completed";
+        }
+        try {
+            film.setMpa(mpaDao.getMpa(film.getMpa().getId()));
+            film.setGenres(resolveGenres(film.getGenres()));
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Жанры из запроса по справочнику, без повторов и в порядке возрастания id.
+     * Несуществующий жанр приводит к NotFoundException до записи в БД.
+     */
+    private Set<Genre> resolveGenres(Set<Genre> genres) {
+        if (genres == null) {
+            return new LinkedHashSet<>();
+        }
+        return genres.stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .map(genreDao::getGenre)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private Set<Integer> genreIds(Set<Genre> genres) {
+        return genres.stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private Set<Integer> difference(Set<Integer> from, Set<Integer> subtract) {
+        Set<Integer> result = new LinkedHashSet<>(from);
+        result.removeAll(subtract);
+        return result;
     }
 }
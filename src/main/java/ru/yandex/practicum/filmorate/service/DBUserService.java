@@ -3,80 +3,249 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
 import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
 import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
 
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Profile("!in-memory")
 @Slf4j
-public class DBUserService {
+public class DBUserService implements UserService {
     private final UserDao userDao;
     private final FriendDao friendDao;
+    private final Validator validator;
+    private final int batchChunkSize;
+    private final EntityVersions versions;
+    private final EntityCache cache;
 
     @Autowired
-    public DBUserService(@Qualifier("userDaoImpl") UserDao userDao, FriendDao friendDao) {
+    public DBUserService(@Qualifier("userDaoImpl") UserDao userDao, FriendDao friendDao, Validator validator,
+                         @Value("${filmorate.batch.chunk-size}") int batchChunkSize, EntityVersions versions,
+                         EntityCache cache) {
         this.userDao = userDao;
         this.friendDao = friendDao;
+        this.validator = validator;
+        this.batchChunkSize = batchChunkSize;
+        this.versions = versions;
+        this.cache = cache;
     }
 
+    @Override
     public User create(User user) {
         if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
         user = userDao.createUser(user);
+        versions.userChanged(user.getId());
         log.info("User {} has been CREATED", user);
         return user;
     }
 
+    @Override
     public User update(User user) {
         if (user.getId() == null || !userDao.checkUserExist(user.getId())) {
             throw new NotFoundException("Cannot update user with ID = null");
         }
+        User updated = userDao.updateUser(user);
+        versions.userUpdated(user.getId());
         log.info("User {} has been UPDATED", user);
-        return userDao.updateUser(user);
+        return updated;
     }
 
+    /**
+     * Пакетное создание пользователей. Сначала проверяются все элементы, затем корректные
+     * вставляются порциями по batchChunkSize строк. Результаты идут в порядке запроса.
+     */
+    @Override
+    public List<BatchItemResult> createBatch(List<User> users) {
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        List<User> valid = new ArrayList<>();
+        Map<User, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            String error = BatchSupport.validationError(validator, user);
+            if (error != null) {
+                results[i] = BatchItemResult.failed(error);
+            } else {
+                if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
+                valid.add(user);
+                positions.put(user, i);
+            }
+        }
+
+        for (List<User> chunk : BatchSupport.chunks(valid, batchChunkSize)) {
+            List<User> created = new ArrayList<>(chunk.size());
+            try {
+                created.addAll(userDao.createUsers(chunk));
+            } catch (DataAccessException e) {
+                // в порции есть строка, которую БД отклонила: вставляем по одной, чтобы найти её
+                for (User user : chunk) {
+                    try {
+                        created.add(userDao.createUser(user));
+                    } catch (DuplicateKeyException ex) {
+                        results[positions.get(user)] = BatchItemResult.failed(String.format(
+                                "User with email %s or login %s already exists", user.getEmail(), user.getLogin()));
+                    } catch (DataAccessException ex) {
+                        results[positions.get(user)] = BatchItemResult.failed("User could not be saved");
+                    }
+                }
+            }
+            for (User user : created) {
+                versions.userChanged(user.getId());
+                results[positions.get(user)] = BatchItemResult.ok(user.getId());
+            }
+        }
+        log.info("Batch of {} users processed", users.size());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResult> addFriends(List<Friendship> friendships) {
+        BatchItemResult[] results = new BatchItemResult[friendships.size()];
+        Set<Integer> userIds = new HashSet<>();
+        for (Friendship friendship : friendships) {
+            if (friendship != null) {
+                userIds.add(friendship.getUserId());
+                userIds.add(friendship.getFriendId());
+            }
+        }
+        userIds.remove(null);
+        Set<Integer> existing = userDao.findExistingIds(userIds);
+
+        List<Friendship> valid = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            String error = BatchSupport.validationError(validator, friendship);
+            if (error == null && !existing.contains(friendship.getUserId())) {
+                error = String.format("User ID = %d does not exist", friendship.getUserId());
+            }
+            if (error == null && !existing.contains(friendship.getFriendId())) {
+                error = String.format("User ID = %d does not exist", friendship.getFriendId());
+            }
+            if (error != null) {
+                results[i] = BatchItemResult.failed(error);
+            } else {
+                valid.add(friendship);
+                positions.add(i);
+            }
+        }
+
+        boolean[] inserted = friendDao.addFriends(valid, batchChunkSize);
+        for (int i = 0; i < valid.size(); i++) {
+            Friendship friendship = valid.get(i);
+            if (inserted[i]) {
+                versions.userChanged(friendship.getUserId());
+            }
+            results[positions.get(i)] = inserted[i] ? BatchItemResult.ok(null) : BatchItemResult.failed(
+                    String.format("User with ID = %d is ALREADY friends with user with ID = %d",
+                            friendship.getFriendId(), friendship.getUserId()));
+        }
+        log.info("Batch of {} friendships processed", friendships.size());
+        return Arrays.asList(results);
+    }
+
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return userDao.findExistingIds(ids);
+    }
+
+    @Override
     public void addFriend(Integer userId, Integer friendId) {
-        if (getUserFriends(userId).contains(getUser(friendId))) {
+        userDao.checkUserExist(userId);
+        userDao.checkUserExist(friendId);
+        if (!friendDao.addFriend(userId, friendId)) {
             throw new AlreadyExistException(String.format(
                     "User with ID = %d is ALREADY friends with user with ID = %d", friendId, userId));
         }
-        friendDao.addFriend(userId, friendId);
+        versions.userChanged(userId);
         log.info("User with ID = {} ADDED user with ID = {} as a friend", userId, friendId);
     }
 
+    @Override
     public void deleteFriend(Integer userId, Integer friendId) {
-        if (!getUserFriends(userId).contains(getUser(friendId))) {
+        userDao.checkUserExist(userId);
+        userDao.checkUserExist(friendId);
+        if (!friendDao.deleteFriend(userId, friendId)) {
             throw new NotFoundException(
                     String.format("Deleted user with ID = %d was NOT FOUND in friends", friendId));
         }
-        friendDao.deleteFriend(userId, friendId);
+        versions.userChanged(userId);
         log.info("User with ID = {} REMOVED from friends of user with ID = {}", friendId, userId);
     }
 
+    /**
+     * Проверка по индексу id в памяти, без запроса к БД.
+     */
+    public void checkUserExist(Integer id) {
+        userDao.checkUserExist(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public User getUser(Integer id) {
         userDao.checkUserExist(id);
         log.info("Get a user with ID = {}", id);
-        return userDao.getById(id);
+        return cache.user(id, userDao::getById);
     }
 
+    @Override
+    @Transactional(readOnly = true)
     public List<User> getUsers() {
         return userDao.getUsers();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<User> getUsersPage(String after, Integer limit) {
+        Page.checkLimit(limit);
+        int afterId = Page.decodeCursor(after);
+        log.info("Get page of {} users after ID = {}", limit, afterId);
+        return Page.of(userDao.getUsersPage(afterId, limit + 1), limit, User::getId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<User> getUserFriends(Integer id) {
         userDao.checkUserExist(id);
         log.info("Get friends of the user with ID= {}", id);
         return friendDao.getAllFriends(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
     public List<User> getCommonFriends(Integer userId, Integer friendId) {
         userDao.checkUserExist(userId);
         userDao.checkUserExist(friendId);
         log.info("Get common friends of users with ID = {} and ID = {}", userId, friendId);
         return friendDao.getCommonFriends(userId, friendId);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getFriendSuggestions(Integer id, Integer limit) {
+        Page.checkLimit(limit);
+        userDao.checkUserExist(id);
+        log.info("Get {} friend suggestions for the user with ID = {}", limit, id);
+        return friendDao.getFriendSuggestions(id, limit);
+    }
 }
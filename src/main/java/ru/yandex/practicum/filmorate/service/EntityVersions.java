@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии фильмов, пользователей и каталога фильмов для ETag.
+ * Версия увеличивается после фиксации транзакции изменения, а контроллер читает её
+ * до загрузки данных — поэтому ETag никогда не окажется новее отданного тела.
+ * В ETag входит время запуска, чтобы после перезапуска старые ETag не совпали с новыми.
+ */
+@Component
+public class EntityVersions {
+    private final EntityCache cache;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Integer, Long> films = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> users = new ConcurrentHashMap<>();
+    private final AtomicLong catalog = new AtomicLong();
+
+    public EntityVersions(EntityCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Фильм создан, изменён или получил/потерял лайк; меняется и версия каталога (топ фильмов).
+     */
+    public void filmChanged(int id) {
+        TransactionHooks.afterCommit(() -> bumpFilm(id));
+    }
+
+    /**
+     * Изменились данные фильма из кэша (строка или жанры). Кэш сбрасывается раньше смены версии
+     * и в том же действии: иначе запрос между ними отдал бы старое тело из кэша с новым ETag.
+     */
+    public void filmUpdated(int id) {
+        TransactionHooks.afterCommit(() -> {
+            cache.invalidateFilm(id);
+            bumpFilm(id);
+        });
+    }
+
+    public void userChanged(int id) {
+        TransactionHooks.afterCommit(() -> users.merge(id, 1L, Long::sum));
+    }
+
+    /**
+     * Изменились данные пользователя из кэша; порядок тот же, что в {@link #filmUpdated}.
+     */
+    public void userUpdated(int id) {
+        TransactionHooks.afterCommit(() -> {
+            cache.invalidateUser(id);
+            users.merge(id, 1L, Long::sum);
+        });
+    }
+
+    public String filmETag(int id) {
+        return etag("film-" + id, films.getOrDefault(id, 0L));
+    }
+
+    public String userETag(int id) {
+        return etag("user-" + id, users.getOrDefault(id, 0L));
+    }
+
+    public String catalogETag() {
+        return etag("catalog", catalog.get());
+    }
+
+    /**
+     * Справочники загружаются при старте и не меняются, их версия — время запуска.
+     */
+    public String referenceETag() {
+        return etag("reference", 0);
+    }
+
+    private void bumpFilm(int id) {
+        films.merge(id, 1L, Long::sum);
+        catalog.incrementAndGet();
+    }
+
+    private String etag(String entity, long version) {
+        return "\"" + entity + "-" + epoch + "-" + version + "\"";
+    }
+}
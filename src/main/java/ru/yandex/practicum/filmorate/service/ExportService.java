@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
+import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Выгрузка таблиц в формате NDJSON (один JSON-объект на строку).
+ * Строки пишутся в поток по мере чтения из БД, поэтому память не зависит от размера таблиц.
+ */
+@Service
+@Slf4j
+public class ExportService {
+    private final FilmDao filmDao;
+    private final UserDao userDao;
+    private final FilmLikesDao filmLikesDao;
+    private final LikeWriteBuffer likeBuffer;
+    private final FriendDao friendDao;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    @Autowired
+    public ExportService(@Qualifier("filmDaoImpl") FilmDao filmDao, @Qualifier("userDaoImpl") UserDao userDao,
+                         FilmLikesDao filmLikesDao, FriendDao friendDao, ObjectMapper objectMapper,
+                         @Value("${filmorate.export.fetch-size}") int fetchSize,
+                         Optional<LikeWriteBuffer> likeBuffer) {
+        this.filmDao = filmDao;
+        this.userDao = userDao;
+        this.filmLikesDao = filmLikesDao;
+        this.likeBuffer = likeBuffer.orElse(null);
+        this.friendDao = friendDao;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    public void exportFilms(OutputStream out) throws IOException {
+        log.info("Export films");
+        ObjectWriter writer = rowWriter();
+        try (JsonGenerator generator = createGenerator(out)) {
+            filmDao.streamFilms(fetchSize, film -> writeLine(generator, () -> writer.writeValue(generator, film)));
+        }
+    }
+
+    public void exportUsers(OutputStream out) throws IOException {
+        log.info("Export users");
+        ObjectWriter writer = rowWriter();
+        try (JsonGenerator generator = createGenerator(out)) {
+            userDao.streamUsers(fetchSize, user -> writeLine(generator, () -> writer.writeValue(generator, user)));
+        }
+    }
+
+    public void exportLikes(OutputStream out) throws IOException {
+        log.info("Export film likes");
+        try (JsonGenerator generator = createGenerator(out)) {
+            BiConsumer<Integer, Integer> line = (filmId, userId) -> writeLine(generator, () -> {
+                generator.writeStartObject();
+                generator.writeNumberField("filmId", filmId);
+                generator.writeNumberField("userId", userId);
+                generator.writeEndObject();
+            });
+            if (likeBuffer == null) {
+                filmLikesDao.streamLikes(fetchSize, line);
+            } else {
+                likeBuffer.streamLikes(fetchSize, line);
+            }
+        }
+    }
+
+    public void exportFriendship(OutputStream out) throws IOException {
+        log.info("Export friendship");
+        try (JsonGenerator generator = createGenerator(out)) {
+            friendDao.streamFriendship(fetchSize, (userId, friendId) -> writeLine(generator, () -> {
+                generator.writeStartObject();
+                generator.writeNumberField("userId", userId);
+                generator.writeNumberField("friendId", friendId);
+                generator.writeEndObject();
+            }));
+        }
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.setRootValueSeparator(null); // строки разделяются переводом строки в writeLine()
+        return generator;
+    }
+
+    /**
+     * Без сброса буфера после каждой строки: генератор сам выталкивает данные по мере заполнения.
+     */
+    private ObjectWriter rowWriter() {
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private void writeLine(JsonGenerator generator, JsonWrite write) {
+        try {
+            write.run();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonWrite {
+        void run() throws IOException;
+    }
+}
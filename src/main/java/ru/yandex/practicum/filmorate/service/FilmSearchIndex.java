@@ -0,0 +1,427 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Полнотекстовый индекс фильмов по названию и описанию с ранжированием BM25.
+ * Слова — последовательности букв и цифр (кириллица и латиница) в нижнем регистре, ё считается е;
+ * слова названия учитываются с весом NAME_WEIGHT.
+ * Каждая версия фильма получает новый номер документа, поэтому списки вхождений только дописываются:
+ * разность номеров и частота хранятся в них varint-байтами. Прежняя версия фильма помечается удалённой,
+ * а когда удалённых становится больше живых, списки перепаковываются без них.
+ * Поиск обходит списки слов запроса одновременно (document-at-a-time) и держит кучу из limit лучших.
+ * Для каждого блока из BLOCK_SIZE вхождений хранятся его последний документ, наибольшая частота
+ * и наименьшая длина документа: блоки, чья верхняя оценка BM25 не дотягивает до худшего из найденных,
+ * пропускаются без распаковки (block-max), а слова, которые вместе не дотягивают до худшего из найденных,
+ * только уточняют оценку документов из остальных списков (MaxScore).
+ */
+public class FilmSearchIndex {
+    private static final int NAME_WEIGHT = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int BLOCK_SIZE = 128;
+    /**
+     * Меньше удалённых документов не перепаковываются.
+     */
+    private static final int MIN_COMPACTION = 1024;
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::getScore)
+            .thenComparing(Comparator.comparingInt(Hit::getFilmId).reversed());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int[] docByFilm = new int[0];
+    private int[] filmByDoc = new int[16];
+    private int[] lengthByDoc = new int[16];
+    private int docCount;
+    private int deletedCount;
+    private int liveCount;
+    private long totalLength;
+
+    /**
+     * Индексирует фильм или заменяет его прежнюю версию.
+     */
+    public void put(int filmId, String name, String description) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokens(name).forEach(token -> frequencies.merge(token, NAME_WEIGHT, Integer::sum));
+        tokens(description).forEach(token -> frequencies.merge(token, 1, Integer::sum));
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            markDeleted(filmId);
+            int doc = docCount++;
+            if (doc == filmByDoc.length) {
+                filmByDoc = Arrays.copyOf(filmByDoc, doc + (doc >> 1));
+                lengthByDoc = Arrays.copyOf(lengthByDoc, doc + (doc >> 1));
+            }
+            if (filmId >= docByFilm.length) {
+                int oldLength = docByFilm.length;
+                docByFilm = Arrays.copyOf(docByFilm, Math.max(filmId + 1, oldLength + (oldLength >> 1)));
+                Arrays.fill(docByFilm, oldLength, docByFilm.length, -1);
+            }
+            docByFilm[filmId] = doc;
+            filmByDoc[doc] = filmId;
+            lengthByDoc[doc] = length;
+            liveCount++;
+            totalLength += length;
+            frequencies.forEach((token, frequency) ->
+                    postings.computeIfAbsent(token, t -> new Postings()).append(doc, frequency, length));
+            if (deletedCount >= MIN_COMPACTION && deletedCount > liveCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return id фильмов по убыванию релевантности, при равенстве — по возрастанию id
+     */
+    public List<Integer> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokens(query));
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / liveCount;
+            List<Cursor> cursors = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    // ln(1 + (N - df + 0.5) / (df + 0.5)); df может включать ещё не вычищенные версии
+                    double idf = Math.log(1 + (liveCount - list.count + 0.5) / (list.count + 0.5));
+                    cursors.add(new Cursor(list, Math.max(idf, 0), averageLength));
+                }
+            }
+            // MaxScore: списки по возрастанию верхней оценки; первые nonEssential из них вместе не дотягивают
+            // до худшего из лучших, поэтому документы-кандидаты берутся только из остальных
+            cursors.sort(Comparator.comparingDouble(Cursor::listBound));
+            double[] boundBefore = new double[cursors.size() + 1];
+            for (int i = 0; i < cursors.size(); i++) {
+                boundBefore[i + 1] = boundBefore[i] + cursors.get(i).listBound();
+            }
+            int nonEssential = 0;
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+            while (true) {
+                double threshold = best.size() == limit ? best.peek().getScore() * (1 - 1e-9) : 0;
+                while (nonEssential < cursors.size() && boundBefore[nonEssential + 1] < threshold) {
+                    nonEssential++;
+                }
+                int doc = Integer.MAX_VALUE;
+                for (int i = nonEssential; i < cursors.size(); i++) {
+                    doc = Math.min(doc, cursors.get(i).doc);
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+                if (threshold > 0) {
+                    // документы до skipTo встречаются в основных списках только в текущих блоках стоящих на doc
+                    double bound = boundBefore[nonEssential];
+                    int skipTo = Integer.MAX_VALUE;
+                    for (int i = nonEssential; i < cursors.size(); i++) {
+                        Cursor cursor = cursors.get(i);
+                        if (cursor.doc == doc) {
+                            bound += cursor.blockBound();
+                            skipTo = Math.min(skipTo, cursor.blockLastDoc() + 1);
+                        } else {
+                            skipTo = Math.min(skipTo, cursor.doc);
+                        }
+                    }
+                    if (bound < threshold) {
+                        for (int i = nonEssential; i < cursors.size(); i++) {
+                            cursors.get(i).advance(skipTo);
+                        }
+                        continue;
+                    }
+                }
+                double norm = K1 * (1 - B + B * lengthByDoc[doc] / averageLength);
+                double score = 0;
+                for (int i = 0; i < cursors.size(); i++) {
+                    Cursor cursor = cursors.get(i);
+                    if (i < nonEssential) {
+                        cursor.advance(doc);
+                    }
+                    if (cursor.doc == doc) {
+                        score += cursor.idf * cursor.frequency * (K1 + 1) / (cursor.frequency + norm);
+                        if (i >= nonEssential) {
+                            cursor.next();
+                        }
+                    }
+                }
+                if (!deleted.get(doc) && (best.size() < limit || isBetter(filmByDoc[doc], score, best.peek()))) {
+                    best.add(new Hit(filmByDoc[doc], score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            Integer[] ids = new Integer[best.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                ids[i] = best.poll().getFilmId();
+            }
+            return Arrays.asList(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            deleted.clear();
+            docByFilm = new int[0];
+            filmByDoc = new int[16];
+            lengthByDoc = new int[16];
+            docCount = 0;
+            deletedCount = 0;
+            liveCount = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char ch = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                ch = Character.toLowerCase(ch);
+                token.append(ch == 'ё' ? 'е' : ch);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isBetter(int filmId, double score, Hit worst) {
+        return score > worst.getScore() || score == worst.getScore() && filmId < worst.getFilmId();
+    }
+
+    private void markDeleted(int filmId) {
+        if (filmId >= docByFilm.length || docByFilm[filmId] < 0) {
+            return;
+        }
+        int doc = docByFilm[filmId];
+        deleted.set(doc);
+        deletedCount++;
+        liveCount--;
+        totalLength -= lengthByDoc[doc];
+        docByFilm[filmId] = -1;
+    }
+
+    /**
+     * Перенумеровывает живые документы подряд, сохраняя порядок, и переписывает списки без удалённых.
+     */
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                renumbered[doc] = -1;
+            } else {
+                renumbered[doc] = live;
+                filmByDoc[live] = filmByDoc[doc];
+                lengthByDoc[live] = lengthByDoc[doc];
+                docByFilm[filmByDoc[live]] = live;
+                live++;
+            }
+        }
+        Iterator<Map.Entry<String, Postings>> entries = postings.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Postings> entry = entries.next();
+            Postings compacted = new Postings();
+            for (Cursor cursor = new Cursor(entry.getValue(), 0, 1); cursor.doc != Integer.MAX_VALUE; cursor.next()) {
+                int doc = renumbered[cursor.doc];
+                if (doc >= 0) {
+                    compacted.append(doc, cursor.frequency, lengthByDoc[doc]);
+                }
+            }
+            if (compacted.count == 0) {
+                entries.remove();
+            } else {
+                entry.setValue(compacted);
+            }
+        }
+        deleted.clear();
+        docCount = live;
+        deletedCount = 0;
+    }
+
+    /**
+     * Список вхождений слова: пары (разность номера документа с предыдущим, частота) в varint,
+     * и сведения о блоках по BLOCK_SIZE вхождений для пропуска.
+     */
+    private static final class Postings {
+        private byte[] data = new byte[8];
+        private int size;
+        private int count;
+        private int lastDoc = -1;
+        private int blocks;
+        private int[] blockOffset = new int[1];
+        private int[] blockLastDoc = new int[1];
+        private int[] blockMaxFrequency = new int[1];
+        private int[] blockMinLength = new int[1];
+        private int maxFrequency;
+        private int minLength = Integer.MAX_VALUE;
+
+        void append(int doc, int frequency, int length) {
+            if (count % BLOCK_SIZE == 0) {
+                if (blocks == blockOffset.length) {
+                    blockOffset = Arrays.copyOf(blockOffset, blocks * 2);
+                    blockLastDoc = Arrays.copyOf(blockLastDoc, blocks * 2);
+                    blockMaxFrequency = Arrays.copyOf(blockMaxFrequency, blocks * 2);
+                    blockMinLength = Arrays.copyOf(blockMinLength, blocks * 2);
+                }
+                blockOffset[blocks] = size;
+                blockMinLength[blocks] = Integer.MAX_VALUE;
+                blocks++;
+            }
+            if (data.length - size < 10) {
+                data = Arrays.copyOf(data, data.length + (data.length >> 1) + 10);
+            }
+            writeVarint(doc - lastDoc);
+            writeVarint(frequency);
+            int block = blocks - 1;
+            blockLastDoc[block] = doc;
+            blockMaxFrequency[block] = Math.max(blockMaxFrequency[block], frequency);
+            blockMinLength[block] = Math.min(blockMinLength[block], length);
+            maxFrequency = Math.max(maxFrequency, frequency);
+            minLength = Math.min(minLength, length);
+            lastDoc = doc;
+            count++;
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+
+    /**
+     * Позиция обхода списка вхождений; doc = Integer.MAX_VALUE, когда список пройден.
+     */
+    private static final class Cursor {
+        private final Postings postings;
+        private final double idf;
+        private final double averageLength;
+        private int read;
+        private int offset;
+        private int doc = -1;
+        private int frequency;
+
+        Cursor(Postings postings, double idf, double averageLength) {
+            this.postings = postings;
+            this.idf = idf;
+            this.averageLength = averageLength;
+            next();
+        }
+
+        void next() {
+            if (read == postings.count) {
+                doc = Integer.MAX_VALUE;
+                return;
+            }
+            doc += readVarint();
+            frequency = readVarint();
+            read++;
+        }
+
+        /**
+         * Переходит к первому документу не меньше target, пропуская целые блоки.
+         */
+        void advance(int target) {
+            if (doc >= target) {
+                return;
+            }
+            int block = (read - 1) / BLOCK_SIZE;
+            if (postings.blockLastDoc[block] < target) {
+                int found = Arrays.binarySearch(postings.blockLastDoc, block + 1, postings.blocks, target);
+                block = found >= 0 ? found : -found - 1;
+                if (block == postings.blocks) {
+                    read = postings.count;
+                    doc = Integer.MAX_VALUE;
+                    return;
+                }
+                offset = postings.blockOffset[block];
+                doc = postings.blockLastDoc[block - 1];
+                read = block * BLOCK_SIZE;
+            }
+            while (doc < target) {
+                next();
+            }
+        }
+
+        int blockLastDoc() {
+            return postings.blockLastDoc[(read - 1) / BLOCK_SIZE];
+        }
+
+        /**
+         * Верхняя оценка вклада слова для документов текущего блока.
+         */
+        double blockBound() {
+            int block = (read - 1) / BLOCK_SIZE;
+            return bound(postings.blockMaxFrequency[block], postings.blockMinLength[block]);
+        }
+
+        double listBound() {
+            return bound(postings.maxFrequency, postings.minLength);
+        }
+
+        private double bound(int maxFrequency, int minLength) {
+            double norm = K1 * (1 - B + B * minLength / averageLength);
+            return idf * maxFrequency * (K1 + 1) / (maxFrequency + norm);
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings.data[offset++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    @Value
+    private static class Hit {
+        int filmId;
+        double score;
+    }
+}
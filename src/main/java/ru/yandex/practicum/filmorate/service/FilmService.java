@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.List;
+
+/**
+ * Операции с фильмами. Реализация выбирается профилем Spring:
+ * по умолчанию — {@link DBFilmService}, с профилем in-memory — хранение только в памяти.
+ */
+public interface FilmService {
+    Film create(Film film);
+
+    Film update(Film film);
+
+    List<BatchItemResult> createBatch(List<Film> films);
+
+    List<BatchItemResult> addLikes(List<FilmLike> likes);
+
+    void addLike(Integer filmId, Integer userId);
+
+    void deleteLike(Integer filmId, Integer userId);
+
+    Film getFilm(Integer id);
+
+    List<Film> getFilms();
+
+    Page<Film> getFilmsPage(FilmFilter filter, Integer limit);
+
+    List<Film> getTopFilms(Integer count);
+
+    List<Film> getRecommendations(Integer userId, Integer limit);
+
+    /**
+     * До limit фильмов, подходящих под запрос по названию и описанию, в порядке релевантности.
+     */
+    List<Film> search(String query, Integer limit);
+}
@@ -0,0 +1,346 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.CompactIntSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Модель похожести фильмов по совместным лайкам (item-item co-occurrence).
+ * Для каждого фильма хранится ограниченный список соседей — фильмов с наибольшим числом пользователей,
+ * лайкнувших оба, — в неизменяемых int[] с точными счётчиками, и верхняя граница счётчика фильмов вне списка.
+ * В списке до двух neighboursLimit записей: запас позволяет пережить отмены лайков без пересчёта.
+ * Счётчики всех пар не хранятся, память — O(фильмы × neighboursLimit) сверх самих лайков.
+ * Лайк меняет только списки лайкнутого фильма и остальных фильмов пользователя; список пересчитывается
+ * по лайкам целиком, лишь когда из-за отмен его первые neighboursLimit записей перестают быть заведомо точными.
+ * Рекомендации пользователю читаются из памяти без обращения к хранилищу.
+ */
+public class FilmSimilarityModel {
+    private final int neighboursLimit;
+    private final int capacity;
+    private static final CompactIntSet NONE = new CompactIntSet();
+
+    private final Map<Integer, CompactIntSet> likersByFilm = new ConcurrentHashMap<>();
+    private final Map<Integer, CompactIntSet> likesByUser = new ConcurrentHashMap<>();
+    // списки меняются только под this, читаются без блокировки
+    private volatile Map<Integer, Neighbours> neighbours = new ConcurrentHashMap<>();
+    // фильмы, чьи списки менялись во время rebuild(): пересчитываются перед подменой
+    private Set<Integer> touched;
+    private int generation;
+
+    public FilmSimilarityModel(int neighboursLimit) {
+        this.neighboursLimit = neighboursLimit;
+        this.capacity = neighboursLimit * 2;
+    }
+
+    /**
+     * Добавляет лайк без обновления соседей — для первоначальной загрузки перед {@link #rebuild()}.
+     */
+    public boolean load(int filmId, int userId) {
+        likesByUser.computeIfAbsent(userId, id -> new CompactIntSet()).add(filmId);
+        return likersByFilm.computeIfAbsent(filmId, id -> new CompactIntSet()).add(userId);
+    }
+
+    /**
+     * Пересчитывает соседей всех фильмов с нуля на копии лайков и подменяет ими текущие.
+     * Лайки и их отмена в это время не ждут перестройки: затронутые ими фильмы пересчитываются при подмене.
+     */
+    public void rebuild() {
+        Map<Integer, int[]> likes = new HashMap<>();
+        Map<Integer, int[]> likers = new HashMap<>();
+        int started;
+        synchronized (this) {
+            likesByUser.forEach((userId, films) -> likes.put(userId, films.toIntArray()));
+            likersByFilm.forEach((filmId, users) -> likers.put(filmId, users.toIntArray()));
+            touched = new HashSet<>();
+            started = generation;
+        }
+        Map<Integer, Neighbours> ranked = new ConcurrentHashMap<>();
+        likers.entrySet().parallelStream().forEach(entry -> {
+            Neighbours list = count(entry.getKey(), entry.getValue(), likes::get);
+            if (list.ids.length > 0) {
+                ranked.put(entry.getKey(), list);
+            }
+        });
+        synchronized (this) {
+            if (generation != started) {
+                return;
+            }
+            for (int filmId : touched) {
+                recount(ranked, filmId);
+            }
+            neighbours = ranked;
+            touched = null;
+        }
+    }
+
+    /**
+     * @return false, если лайк уже был
+     */
+    public synchronized boolean like(int filmId, int userId) {
+        if (!load(filmId, userId)) {
+            return false;
+        }
+        apply(filmId, likesByUser.get(userId).toIntArray(), 1);
+        return true;
+    }
+
+    /**
+     * @return false, если лайка не было
+     */
+    public synchronized boolean unlike(int filmId, int userId) {
+        CompactIntSet likers = likersByFilm.get(filmId);
+        if (likers == null || !likers.remove(userId)) {
+            return false;
+        }
+        if (likers.isEmpty()) {
+            likersByFilm.remove(filmId);
+        }
+        CompactIntSet liked = likesByUser.get(userId);
+        liked.remove(filmId);
+        if (liked.isEmpty()) {
+            likesByUser.remove(userId);
+        }
+        apply(filmId, liked.toIntArray(), -1);
+        return true;
+    }
+
+    public synchronized void clear() {
+        likersByFilm.clear();
+        likesByUser.clear();
+        neighbours = new ConcurrentHashMap<>();
+        touched = null;
+        generation++;
+    }
+
+    /**
+     * Фильмы, похожие на лайкнутые пользователем, кроме уже лайкнутых:
+     * вес кандидата — сумма совместных лайков с каждым фильмом пользователя.
+     *
+     * @return id фильмов по убыванию веса, при равенстве — по возрастанию id
+     */
+    public List<Integer> recommend(int userId, int limit) {
+        CompactIntSet liked = likesByUser.getOrDefault(userId, NONE);
+        Map<Integer, Neighbours> current = neighbours;
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int filmId : liked.toIntArray()) {
+            Neighbours list = current.get(filmId);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.ids.length && i < neighboursLimit; i++) {
+                if (!liked.contains(list.ids[i])) {
+                    scores.merge(list.ids[i], list.counts[i], Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(scores.entrySet());
+        entries.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Integer> ids = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            ids.add(entries.get(i).getKey());
+        }
+        return ids;
+    }
+
+    /**
+     * Пары filmId с фильмами others (лайки пользователя после изменения) изменились на delta:
+     * обновляются списки обоих фильмов каждой пары. Список filmId пересчитывается не раньше,
+     * чем в нём учтены все пары: пересчёт по лайкам уже видит их все.
+     */
+    private void apply(int filmId, int[] others, int delta) {
+        Map<Integer, Neighbours> current = neighbours;
+        if (touched != null) {
+            touched.add(filmId);
+        }
+        Neighbours list = current.getOrDefault(filmId, Neighbours.EMPTY);
+        for (int otherId : others) {
+            if (otherId == filmId) {
+                continue;
+            }
+            if (touched != null) {
+                touched.add(otherId);
+            }
+            if (list != null) {
+                list = update(list, filmId, otherId, delta);
+            }
+            store(current, otherId, update(current.getOrDefault(otherId, Neighbours.EMPTY), otherId, filmId, delta));
+        }
+        store(current, filmId, list);
+    }
+
+    /**
+     * Счётчик соседа в списке известен точно и меняется на delta. Фильм вне списка при росте
+     * получает точный счётчик по пересечению лайкнувших и занимает место, если проходит в список;
+     * при уменьшении он остаётся вне списка, граница остаётся верной.
+     *
+     * @return новый список или null, если его первые neighboursLimit записей уже не заведомо точны
+     */
+    private Neighbours update(Neighbours list, int filmId, int otherId, int delta) {
+        int index = list.indexOf(otherId);
+        Neighbours updated;
+        if (index >= 0) {
+            updated = list.with(otherId, list.counts[index] + delta, capacity);
+        } else if (delta > 0) {
+            updated = list.with(otherId, coLikes(filmId, otherId), capacity);
+        } else {
+            return list;
+        }
+        return updated.isExact(neighboursLimit) ? updated : null;
+    }
+
+    private void store(Map<Integer, Neighbours> current, int filmId, Neighbours list) {
+        if (list == null) {
+            recount(current, filmId);
+        } else if (list.ids.length == 0) {
+            current.remove(filmId);
+        } else {
+            current.put(filmId, list);
+        }
+    }
+
+    private void recount(Map<Integer, Neighbours> ranked, int filmId) {
+        CompactIntSet likers = likersByFilm.get(filmId);
+        store(ranked, filmId, likers == null ? Neighbours.EMPTY
+                : count(filmId, likers.toIntArray(), userId -> likesByUser.get(userId).toIntArray()));
+    }
+
+    /**
+     * Число пользователей, лайкнувших оба фильма.
+     */
+    private int coLikes(int filmId, int otherId) {
+        CompactIntSet smaller = likersByFilm.getOrDefault(filmId, NONE);
+        CompactIntSet larger = likersByFilm.getOrDefault(otherId, NONE);
+        if (smaller.size() > larger.size()) {
+            CompactIntSet swap = smaller;
+            smaller = larger;
+            larger = swap;
+        }
+        int count = 0;
+        for (int userId : smaller.toIntArray()) {
+            if (larger.contains(userId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Список соседей filmId с нуля: фильмы, лайкнутые его пользователями, сортируются и считаются подряд,
+     * из них остаются capacity лучших.
+     */
+    private Neighbours count(int filmId, int[] likers, IntFunction<int[]> likesOf) {
+        int total = 0;
+        int[][] likes = new int[likers.length][];
+        for (int i = 0; i < likers.length; i++) {
+            likes[i] = likesOf.apply(likers[i]);
+            total += likes[i].length;
+        }
+        int[] films = new int[total];
+        int size = 0;
+        for (int[] userLikes : likes) {
+            for (int otherId : userLikes) {
+                if (otherId != filmId) {
+                    films[size++] = otherId;
+                }
+            }
+        }
+        Arrays.sort(films, 0, size);
+        // счётчик по убыванию и id по возрастанию в одном long: порядок списка — порядок чисел
+        long[] ranked = new long[size];
+        int distinct = 0;
+        for (int i = 0; i < size; ) {
+            int j = i;
+            while (j < size && films[j] == films[i]) {
+                j++;
+            }
+            ranked[distinct++] = (long) (Integer.MAX_VALUE - (j - i)) << 32 | films[i];
+            i = j;
+        }
+        Arrays.sort(ranked, 0, distinct);
+        int kept = Math.min(distinct, capacity);
+        int[] ids = new int[kept];
+        int[] counts = new int[kept];
+        for (int i = 0; i < kept; i++) {
+            ids[i] = (int) ranked[i];
+            counts[i] = Integer.MAX_VALUE - (int) (ranked[i] >>> 32);
+        }
+        int bound = distinct > kept ? Integer.MAX_VALUE - (int) (ranked[kept] >>> 32) : 0;
+        return new Neighbours(ids, counts, bound);
+    }
+
+    /**
+     * Неизменяемый список соседей фильма по убыванию совместных лайков, при равенстве — по возрастанию id.
+     * bound — не меньше счётчика любого фильма вне списка; 0 — вне списка соседей нет.
+     */
+    private static final class Neighbours {
+        private static final Neighbours EMPTY = new Neighbours(new int[0], new int[0], 0);
+
+        private final int[] ids;
+        private final int[] counts;
+        private final int bound;
+
+        private Neighbours(int[] ids, int[] counts, int bound) {
+            this.ids = ids;
+            this.counts = counts;
+            this.bound = bound;
+        }
+
+        private int indexOf(int filmId) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == filmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Первые limit записей — точный топ: за ними либо ничего нет, либо все фильмы вне списка меньше.
+         */
+        private boolean isExact(int limit) {
+            return ids.length >= limit ? counts[limit - 1] > bound : bound == 0;
+        }
+
+        /**
+         * @return копия списка, где у filmId счётчик count (0 — фильм убирается); не поместившийся
+         * в capacity фильм выпадает из списка и поднимает границу
+         */
+        private Neighbours with(int filmId, int count, int capacity) {
+            int[] newIds = new int[ids.length + 1];
+            int[] newCounts = new int[ids.length + 1];
+            int size = 0;
+            boolean inserted = count == 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == filmId) {
+                    continue;
+                }
+                if (!inserted && (count > counts[i] || count == counts[i] && filmId < ids[i])) {
+                    newIds[size] = filmId;
+                    newCounts[size++] = count;
+                    inserted = true;
+                }
+                newIds[size] = ids[i];
+                newCounts[size++] = counts[i];
+            }
+            if (!inserted) {
+                newIds[size] = filmId;
+                newCounts[size++] = count;
+            }
+            int newBound = bound;
+            if (size > capacity) {
+                newBound = Math.max(bound, newCounts[capacity]);
+                size = capacity;
+            }
+            return new Neighbours(Arrays.copyOf(newIds, size), Arrays.copyOf(newCounts, size), newBound);
+        }
+    }
+}
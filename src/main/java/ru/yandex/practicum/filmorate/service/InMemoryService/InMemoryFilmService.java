@@ -3,78 +3,251 @@ package ru.yandex.practicum.filmorate.service.InMemoryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.service.BatchSupport;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityModel;
+import ru.yandex.practicum.filmorate.service.PopularityLeaderboard;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
 
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
+/**
+ * Фильмы только в памяти (профиль in-memory). Лайки ставятся и снимаются
+ * атомарными операциями конкурентных множеств, без check-then-act.
+ * Множество лайков, рейтинг и модель сходства меняются под блокировкой пары (фильм, пользователь).
+ */
 @Service
+@Profile("in-memory")
 @Slf4j
-public class InMemoryFilmService {
+public class InMemoryFilmService implements FilmService {
+    private static final int PAIR_LOCKS = 64;
+
     private final FilmStorage filmStorage;
     private final InMemoryUserService userService;
+    private final Validator validator;
+    private final PopularityLeaderboard leaderboard = new PopularityLeaderboard();
+    private final FilmSimilarityModel similarity;
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final EntityVersions versions;
+    private final MpaDao mpaDao;
+    private final Object[] pairLocks = new Object[PAIR_LOCKS];
 
     @Autowired
     public InMemoryFilmService(@Qualifier("inMemoryFilmStorage") FilmStorage filmStorage,
-                               InMemoryUserService userService) {
+                               InMemoryUserService userService, Validator validator,
+                               @Value("${filmorate.recommendations.neighbours}") int neighboursLimit,
+                               EntityVersions versions, MpaDao mpaDao) {
         this.filmStorage = filmStorage;
         this.userService = userService;
+        this.validator = validator;
+        this.similarity = new FilmSimilarityModel(neighboursLimit);
+        this.versions = versions;
+        this.mpaDao = mpaDao;
+        for (int i = 0; i < PAIR_LOCKS; i++) {
+            pairLocks[i] = new Object();
+        }
     }
 
+    @Override
     public Film create(Film film) {
+        Film newFilm = filmStorage.createFilm(film);
+        if (newFilm.getLikes() != null) {
+            leaderboard.put(newFilm.getId(), newFilm.getLikes().size());
+            for (int userId : newFilm.getLikes().toIntArray()) {
+                synchronized (pairLock(newFilm.getId(), userId)) {
+                    // лайк мог быть уже снят конкурентным deleteLike
+                    if (newFilm.getLikes().contains(userId)) {
+                        similarity.like(newFilm.getId(), userId);
+                    }
+                }
+            }
+        } else {
+            leaderboard.put(newFilm.getId(), 0);
+        }
+        versions.filmChanged(newFilm.getId());
+        searchIndex.put(newFilm.getId(), newFilm.getName(), newFilm.getDescription());
         log.info("Film {} has been CREATED", film);
-        return filmStorage.createFilm(film);
+        return newFilm;
     }
 
+    @Override
     public Film update(Film film) {
-        if (film.getId() == null || filmStorage.getById(film.getId()) == null) {
+        if (film.getId() == null) {
             throw new NotFoundException("Can't update film with ID = null");
         }
+        Film updated = filmStorage.updateFilm(film);
+        if (updated == null) {
+            throw new NotFoundException(String.format("Film ID = %d does not exist", film.getId()));
+        }
+        versions.filmChanged(film.getId());
+        searchIndex.put(updated.getId(), updated.getName(), updated.getDescription());
         log.info("Film {} has been UPDATED", film);
-        return filmStorage.updateFilm(film);
+        return updated;
+    }
+
+    @Override
+    public List<BatchItemResult> createBatch(List<Film> films) {
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            String error = validateForBatch(films.get(i));
+            if (error != null) {
+                results[i] = BatchItemResult.failed(error);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        for (int i : valid) {
+            results[i] = BatchItemResult.ok(create(films.get(i)).getId());
+        }
+        log.info("Batch of {} films processed, {} CREATED", films.size(), valid.size());
+        return Arrays.asList(results);
     }
 
+    @Override
+    public List<BatchItemResult> addLikes(List<FilmLike> likes) {
+        List<BatchItemResult> results = new ArrayList<>(likes.size());
+        for (FilmLike like : likes) {
+            String error = BatchSupport.validationError(validator, like);
+            if (error != null) {
+                results.add(BatchItemResult.failed(error));
+                continue;
+            }
+            try {
+                addLike(like.getFilmId(), like.getUserId());
+                results.add(BatchItemResult.ok(null));
+            } catch (NotFoundException | AlreadyExistException e) {
+                results.add(BatchItemResult.failed(e.getMessage()));
+            }
+        }
+        log.info("Batch of {} likes processed", likes.size());
+        return results;
+    }
+
+    @Override
     public void addLike(Integer filmId, Integer userId) {
         Film film = getFilm(filmId);
         userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        if (film.getLikes().contains(userId)) {
-            throw new AlreadyExistException(
-                    String.format("The user with ID = %d has ALREADY LIKE the film with ID = %d", userId, filmId));
+        synchronized (pairLock(filmId, userId)) {
+            if (!film.getLikes().add(userId)) {
+                throw new AlreadyExistException(
+                        String.format("The user with ID = %d has ALREADY LIKE the film with ID = %d", userId, filmId));
+            }
+            leaderboard.increment(filmId);
+            similarity.like(filmId, userId);
         }
-
-        film.getLikes().add(userId);
+        versions.filmChanged(filmId);
         log.info("Film with ID = {} was LIKED by user with ID = {}", filmId, userId);
     }
 
+    @Override
     public void deleteLike(Integer filmId, Integer userId) {
         Film film = getFilm(filmId);
         userService.getUser(userId); // метод getUser() выбросит исключение, если userId не существует
-        if (!film.getLikes().contains(userId)) {
-            throw new NotFoundException(
-                    String.format("User with ID = %d has ALREADY DELETED LIKE film with ID = %d", userId, filmId));
+        synchronized (pairLock(filmId, userId)) {
+            if (!film.getLikes().remove(userId)) {
+                throw new NotFoundException(
+                        String.format("User with ID = %d has ALREADY DELETED LIKE film with ID = %d", userId, filmId));
+            }
+            leaderboard.decrement(filmId);
+            similarity.unlike(filmId, userId);
         }
-
-        film.getLikes().remove(userId);
+        versions.filmChanged(filmId);
         log.info("Film with ID = {} was UNLIKED by user with ID = {}", filmId, userId);
     }
 
+    @Override
     public Film getFilm(Integer id) {
-        if (filmStorage.getById(id) == null) {
+        Film film = filmStorage.getById(id);
+        if (film == null) {
             throw new NotFoundException(String.format("Film ID = %d does not exist", id));
         }
         log.info("Get a film with ID = {}", id);
-        return filmStorage.getById(id);
+        return film;
     }
 
+    @Override
     public List<Film> getFilms() {
         return filmStorage.getFilms();
     }
 
+    @Override
+    public Page<Film> getFilmsPage(FilmFilter filter, Integer limit) {
+        Page.checkLimit(limit);
+        log.info("Get page of {} films by {}", limit, filter);
+        return filmStorage.findFilms(filter, limit);
+    }
+
+    @Override
     public List<Film> getTopFilms(Integer count) {
         log.info("Get {} popular films", count);
-        return filmStorage.getTopFilms(count);
+        return leaderboard.top(count).stream()
+                .map(filmStorage::getById)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getRecommendations(Integer userId, Integer limit) {
+        Page.checkLimit(limit);
+        userService.getUser(userId);
+        log.info("Get {} film recommendations for the user with ID = {}", limit, userId);
+        return similarity.recommend(userId, limit).stream()
+                .map(filmStorage::getById)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> search(String query, Integer limit) {
+        Page.checkLimit(limit);
+        if (query.isBlank()) {
+            throw new ValidationException("Search query must not be blank");
+        }
+        log.info("Search {} films by query '{}'", limit, query);
+        return searchIndex.search(query, limit).stream()
+                .map(filmStorage::getById)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Проверяет фильм пакета так же, как DBFilmService: ограничения модели, дата релиза и рейтинг MPA.
+     */
+    private String validateForBatch(Film film) {
+        String error = BatchSupport.validationError(validator, film);
+        if (error != null) {
+            return error;
+        }
+        if (film.getReleaseDate() == null) {
+            return "Release date must be completed";
+        }
+        try {
+            film.setMpa(mpaDao.getMpa(film.getMpa().getId()));
+        } catch (NotFoundException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private Object pairLock(int filmId, int userId) {
+        long key = (long) filmId << 32 | (userId & 0xFFFFFFFFL);
+        return pairLocks[Math.floorMod(Long.hashCode(key), PAIR_LOCKS)];
     }
 }
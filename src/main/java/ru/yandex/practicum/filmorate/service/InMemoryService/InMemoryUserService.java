@@ -2,92 +2,209 @@ package ru.yandex.practicum.filmorate.service.InMemoryService;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchSupport;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FriendGraphIndex;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Пользователи только в памяти (профиль in-memory). Друзья добавляются и удаляются
+ * атомарными операциями конкурентных множеств, без check-then-act.
+ * Множества друзей обоих пользователей и граф дружбы меняются под блокировкой пары.
+ */
 @Service
+@Profile("in-memory")
 @Slf4j
-public class InMemoryUserService {
+public class InMemoryUserService implements UserService {
+    private static final int PAIR_LOCKS = 64;
+
     private final UserStorage userStorage;
+    private final Validator validator;
+    private final FriendGraphIndex friendGraph = new FriendGraphIndex();
+    private final EntityVersions versions;
+    private final Object[] pairLocks = new Object[PAIR_LOCKS];
 
-    public InMemoryUserService(@Qualifier("inMemoryUserStorage") UserStorage userStorage) {
+    public InMemoryUserService(@Qualifier("inMemoryUserStorage") UserStorage userStorage, Validator validator,
+                               EntityVersions versions) {
         this.userStorage = userStorage;
+        this.validator = validator;
+        this.versions = versions;
+        for (int i = 0; i < PAIR_LOCKS; i++) {
+            pairLocks[i] = new Object();
+        }
     }
 
+    @Override
     public User create(User user) {
         if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
+        User newUser = userStorage.createUser(user);
+        if (newUser.getFriends() != null) {
+            for (int friendId : newUser.getFriends().toIntArray()) {
+                synchronized (pairLock(newUser.getId(), friendId)) {
+                    // друг мог быть уже удалён конкурентным deleteFriend
+                    if (newUser.getFriends().contains(friendId)) {
+                        friendGraph.add(newUser.getId(), friendId);
+                    }
+                }
+            }
+        }
+        versions.userChanged(newUser.getId());
         log.info("User {} has been CREATED", user);
-        return userStorage.createUser(user);
+        return newUser;
     }
 
+    @Override
     public User update(User user) {
-        if (user.getId() == null || userStorage.getById(user.getId()) == null) {
+        if (user.getId() == null) {
             throw new NotFoundException("Cannot update user with ID = null");
         }
+        User updated = userStorage.updateUser(user);
+        if (updated == null) {
+            throw new NotFoundException(String.format("User ID = %d does not exist", user.getId()));
+        }
+        versions.userChanged(user.getId());
         log.info("User {} has been UPDATED", user);
-        return userStorage.updateUser(user);
+        return updated;
     }
 
-    public void addFriend(Integer userId, Integer friendId) {
-        User user = getUser(userId);
-        if (user.getFriends().contains(friendId)) {
-            throw new AlreadyExistException(String.format(
-                    "User with ID = %d is ALREADY friends with user with ID = %d", friendId, userId));
+    @Override
+    public List<BatchItemResult> createBatch(List<User> users) {
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for (User user : users) {
+            String error = BatchSupport.validationError(validator, user);
+            results.add(error == null ? BatchItemResult.ok(create(user).getId()) : BatchItemResult.failed(error));
+        }
+        log.info("Batch of {} users processed", users.size());
+        return results;
+    }
+
+    @Override
+    public List<BatchItemResult> addFriends(List<Friendship> friendships) {
+        BatchItemResult[] results = new BatchItemResult[friendships.size()];
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            String error = BatchSupport.validationError(validator, friendship);
+            if (error != null) {
+                results[i] = BatchItemResult.failed(error);
+                continue;
+            }
+            try {
+                addFriend(friendship.getUserId(), friendship.getFriendId());
+                results[i] = BatchItemResult.ok(null);
+            } catch (NotFoundException | AlreadyExistException e) {
+                results[i] = BatchItemResult.failed(e.getMessage());
+            }
         }
+        log.info("Batch of {} friendships processed", friendships.size());
+        return Arrays.asList(results);
+    }
 
+    @Override
+    public void addFriend(Integer userId, Integer friendId) {
+        User user = getUser(userId);
         User friend = getUser(friendId);
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+        synchronized (pairLock(userId, friendId)) {
+            if (!user.getFriends().add(friendId)) {
+                throw new AlreadyExistException(String.format(
+                        "User with ID = %d is ALREADY friends with user with ID = %d", friendId, userId));
+            }
+            friend.getFriends().add(userId);
+            friendGraph.add(userId, friendId);
+            friendGraph.add(friendId, userId);
+        }
+        versions.userChanged(userId);
+        versions.userChanged(friendId);
         log.info("User with ID = {} ADDED user with ID = {} as a friend", userId, friendId);
     }
 
+    @Override
     public void deleteFriend(Integer userId, Integer friendId) {
         User user = getUser(userId);
         User friend = getUser(friendId);
-
-        if (!user.getFriends().contains(friendId)) {
-            throw new NotFoundException(
-                    String.format("Deleted user with ID = %d was NOT FOUND in friends", friendId));
+        synchronized (pairLock(userId, friendId)) {
+            if (!user.getFriends().remove(friendId)) {
+                throw new NotFoundException(
+                        String.format("Deleted user with ID = %d was NOT FOUND in friends", friendId));
+            }
+            friend.getFriends().remove(userId);
+            friendGraph.remove(userId, friendId);
+            friendGraph.remove(friendId, userId);
         }
-
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
+        versions.userChanged(userId);
+        versions.userChanged(friendId);
         log.info("User with ID = {} REMOVED from friends of user with ID = {}", friendId, userId);
     }
 
+    @Override
     public User getUser(Integer id) {
-        if (userStorage.getById(id) == null) {
+        User user = userStorage.getById(id);
+        if (user == null) {
             throw new NotFoundException(String.format("User ID = %d does not exist", id));
         }
         log.info("Get a user with ID = {}", id);
-        return userStorage.getById(id);
+        return user;
     }
 
+    @Override
     public List<User> getUsers() {
         return userStorage.getUsers();
     }
 
+    @Override
+    public Page<User> getUsersPage(String after, Integer limit) {
+        Page.checkLimit(limit);
+        return Page.of(userStorage.getUsersPage(Page.decodeCursor(after), limit + 1), limit, User::getId);
+    }
+
+    @Override
     public List<User> getUserFriends(Integer id) {
-        if (userStorage.getById(id) == null) {
-            throw new NotFoundException(String.format("User ID = %d does not exist", id));
-        }
+        getUser(id);
         log.info("Get friends of the user with ID= {}", id);
-        return getUser(id).getFriends()
-                .stream()
-                .map(this::getUser)
-                .collect(Collectors.toList());
+        return toUsers(friendGraph.friends(id));
     }
 
+    @Override
     public List<User> getCommonFriends(Integer userId, Integer friendId) {
-        List<User> friends = getUserFriends(userId);
-        friends.retainAll(getUserFriends(friendId));
+        getUser(userId);
+        getUser(friendId);
         log.info("Get common friends of users with ID = {} and ID = {}", userId, friendId);
-        return friends;
+        return toUsers(friendGraph.commonFriends(userId, friendId));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Integer id, Integer limit) {
+        Page.checkLimit(limit);
+        getUser(id);
+        log.info("Get {} friend suggestions for the user with ID = {}", limit, id);
+        return toUsers(friendGraph.suggestions(id, limit));
+    }
+
+    /**
+     * Блокировка неупорядоченной пары: addFriend(a, b) и deleteFriend(b, a) меняют одни и те же связи.
+     */
+    private Object pairLock(int userId, int friendId) {
+        long key = (long) Math.min(userId, friendId) << 32 | (Math.max(userId, friendId) & 0xFFFFFFFFL);
+        return pairLocks[Math.floorMod(Long.hashCode(key), PAIR_LOCKS)];
+    }
+
+    private List<User> toUsers(int[] ids) {
+        return Arrays.stream(ids)
+                .mapToObj(userStorage::getById)
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.metrics.JdbcStatementCounter;
+import ru.yandex.practicum.filmorate.storage.ReadYourWrites;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Исполнитель работы контроллеров с БД, освобождающий потоки Tomcat на время запросов к БД.
+ * Режим задаётся свойством filmorate.async.executor:
+ * bounded — пул по числу соединений Hikari с ограниченной очередью, при переполнении
+ * задача отклоняется (RejectedExecutionException, ответ 503);
+ * virtual — виртуальный поток на задачу, если среда выполнения их поддерживает (Java 21+),
+ * иначе bounded; одновременный доступ к БД всё равно ограничен пулом соединений;
+ * direct — синхронно в потоке запроса.
+ */
+@Component
+@Slf4j
+public class JdbcExecutor {
+    private final ExecutorService executor;
+
+    public JdbcExecutor(@Value("${filmorate.async.executor}") String mode,
+                        @Value("${spring.datasource.hikari.maximum-pool-size}") int poolSize,
+                        @Value("${filmorate.async.queue-capacity}") int queueCapacity) {
+        ExecutorService created = null;
+        if ("virtual".equals(mode)) {
+            created = virtualThreadExecutor();
+        }
+        if (created == null && !"direct".equals(mode)) {
+            created = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory(),
+                    new ThreadPoolExecutor.AbortPolicy());
+            log.info("JDBC executor: {} threads, queue of {} tasks", poolSize, queueCapacity);
+        }
+        this.executor = created;
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> work) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        return CompletableFuture.supplyAsync(work, propagating());
+    }
+
+    public CompletableFuture<Void> run(Runnable work) {
+        return supply(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private Executor propagating() {
+        return task -> executor.execute(ReadYourWrites.propagate(JdbcStatementCounter.propagate(task)));
+    }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            ExecutorService virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("JDBC executor: virtual thread per task");
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not supported by Java {}, falling back to the bounded executor",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "jdbc-" + number.incrementAndGet());
+        }
+    }
+}
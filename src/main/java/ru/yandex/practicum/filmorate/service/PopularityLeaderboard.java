@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Рейтинг фильмов по числу лайков, обновляемый инкрементально.
+ * Фильмы упорядочены по убыванию лайков, при равенстве — по возрастанию id.
+ * Топ-N читается за O(log n + N) без обращения к хранилищу.
+ */
+public class PopularityLeaderboard {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getLikes).reversed()
+            .thenComparingInt(Entry::getFilmId);
+
+    private final Map<Integer, Integer> likes = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+    public void put(Integer filmId, int likesCount) {
+        update(filmId, current -> likesCount);
+    }
+
+    public void increment(Integer filmId) {
+        update(filmId, current -> current + 1);
+    }
+
+    public void decrement(Integer filmId) {
+        update(filmId, current -> current - 1);
+    }
+
+    public List<Integer> top(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        Set<Integer> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (ids.size() == count) {
+                break;
+            }
+            // во время обновления фильм может ненадолго присутствовать в рейтинге дважды
+            if (seen.add(entry.getFilmId())) {
+                ids.add(entry.getFilmId());
+            }
+        }
+        return ids;
+    }
+
+    public void clear() {
+        likes.clear();
+        ranking.clear();
+    }
+
+    private void update(Integer filmId, IntUnaryOperator change) {
+        // compute сериализует изменения одного фильма: текущее число лайков читается и меняется в нём же;
+        // новая запись добавляется раньше удаления старой, чтобы параллельное чтение топа не потеряло фильм
+        likes.compute(filmId, (id, old) -> {
+            int current = old == null ? 0 : old;
+            int updated = Math.max(change.applyAsInt(current), 0);
+            ranking.add(new Entry(id, updated));
+            if (old != null && updated != current) {
+                ranking.remove(new Entry(id, current));
+            }
+            return updated;
+        });
+    }
+
+    @Value
+    private static class Entry {
+        Integer filmId;
+        int likes;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+
+/**
+ * Операции с пользователями. Реализация выбирается профилем Spring:
+ * по умолчанию — {@link DBUserService}, с профилем in-memory — хранение только в памяти.
+ */
+public interface UserService {
+    User create(User user);
+
+    User update(User user);
+
+    List<BatchItemResult> createBatch(List<User> users);
+
+    List<BatchItemResult> addFriends(List<Friendship> friendships);
+
+    void addFriend(Integer userId, Integer friendId);
+
+    void deleteFriend(Integer userId, Integer friendId);
+
+    User getUser(Integer id);
+
+    List<User> getUsers();
+
+    Page<User> getUsersPage(String after, Integer limit);
+
+    List<User> getUserFriends(Integer id);
+
+    List<User> getCommonFriends(Integer userId, Integer friendId);
+
+    List<User> getFriendSuggestions(Integer id, Integer limit);
+}
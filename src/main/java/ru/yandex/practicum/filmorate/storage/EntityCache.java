@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш фильмов и пользователей перед FilmDao.getById и UserDao.getById (Caffeine, W-TinyLFU):
+ * ограничен числом записей и временем жизни, статистика попаданий и вытеснений публикуется
+ * в метриках cache.* с тегом cache=films или users.
+ * Запись сбрасывает EntityVersions после фиксации изменения, до смены версии. Промах читается с основной БД,
+ * чтобы отстающая реплика не положила в кэш старую версию.
+ * Лайки и дружба в кэшируемые объекты не входят и кэш не сбрасывают.
+ */
+@Component
+public class EntityCache {
+    private final Cache<Integer, Film> films;
+    private final Cache<Integer, User> users;
+    // число сбросов фильмов: пакетная загрузка по нему узнаёт, что фильм изменился, пока она читала БД
+    private final AtomicLong filmInvalidations = new AtomicLong();
+
+    public EntityCache(MeterRegistry registry,
+                       @Value("${filmorate.cache.maximum-size}") long maximumSize,
+                       @Value("${filmorate.cache.expire-after-write}") Duration expireAfterWrite) {
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, films, "films");
+        CaffeineCacheMetrics.monitor(registry, users, "users");
+    }
+
+    public Film film(int id, Function<Integer, Film> loader) {
+        return films.get(id, fromPrimary(loader));
+    }
+
+    /**
+     * Фильмы в порядке ids; отсутствующие в кэше загружаются одним вызовом loader.
+     * Пакетная загрузка, в отличие от {@link #film}, не атомарна со сбросом: если за время загрузки
+     * какой-то фильм сбросили, загруженные фильмы возвращаются, но в кэше не остаются.
+     */
+    public List<Film> films(List<Integer> ids, Function<List<Integer>, List<Film>> loader) {
+        Map<Integer, Film> found = new HashMap<>(films.getAllPresent(ids));
+        List<Integer> missingIds = ids.stream()
+                .filter(id -> !found.containsKey(id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            long invalidations = filmInvalidations.get();
+            Map<Integer, Film> loaded = fromPrimary(loader).apply(missingIds).stream()
+                    .collect(Collectors.toMap(Film::getId, Function.identity()));
+            films.putAll(loaded);
+            if (filmInvalidations.get() != invalidations) {
+                films.invalidateAll(loaded.keySet());
+            }
+            found.putAll(loaded);
+        }
+        return ids.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public User user(int id, Function<Integer, User> loader) {
+        return users.get(id, fromPrimary(loader));
+    }
+
+    public void invalidateFilm(int id) {
+        filmInvalidations.incrementAndGet();
+        films.invalidate(id);
+    }
+
+    public void invalidateUser(int id) {
+        users.invalidate(id);
+    }
+
+    public CacheStats filmStats() {
+        return films.stats();
+    }
+
+    public CacheStats userStats() {
+        return users.stats();
+    }
+
+    private static <K, V> Function<K, V> fromPrimary(Function<K, V> loader) {
+        return key -> {
+            if (ReadYourWrites.isPinned()) {
+                return loader.apply(key);
+            }
+            ReadYourWrites.pin();
+            try {
+                return loader.apply(key);
+            } finally {
+                ReadYourWrites.unpin();
+            }
+        };
+    }
+}
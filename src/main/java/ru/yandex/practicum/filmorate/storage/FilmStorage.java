@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Page;
 
 import java.util.List;
 
@@ -11,7 +13,11 @@ public interface FilmStorage {
 
     List<Film> getFilms();
 
-    Film getById(Integer id);
+    /**
+     * Страница из не более limit фильмов, подходящих под фасеты фильтра, в его порядке
+     * и начиная с его позиции; курсор следующей страницы учитывает сортировку.
+     */
+    Page<Film> findFilms(FilmFilter filter, int limit);
 
-    List<Film> getTopFilms(Integer count);
+    Film getById(Integer id);
 }
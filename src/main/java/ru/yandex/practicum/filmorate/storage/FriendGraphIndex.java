@@ -0,0 +1,381 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Граф дружбы в памяти в формате CSR: отсортированные списки друзей всех пользователей лежат подряд
+ * в одном массиве targets, а offsets[id]..offsets[id + 1] задаёт границы списка пользователя.
+ * Изменения копятся в небольшой дельте (новый отсортированный массив на пользователя)
+ * и периодически сливаются в основной массив.
+ * Чтение идёт без блокировок, запись — под монитором индекса.
+ */
+public class FriendGraphIndex {
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_COMPACTION_THRESHOLD = 1024;
+    /**
+     * Предел числа рёбер второго уровня, просматриваемых при подборе рекомендаций.
+     */
+    private static final int MAX_TWO_HOP_EDGES = 2_000_000;
+    /**
+     * Начиная с такого числа друзей обход второго уровня идёт параллельно.
+     */
+    private static final int PARALLEL_FAN_OUT = 512;
+
+    private volatile State state = new State(new int[]{0}, EMPTY);
+
+    /**
+     * Перестраивает индекс по всем связям (userId, friendId), переданным источником.
+     */
+    public synchronized void load(Consumer<BiConsumer<Integer, Integer>> source) {
+        IntBuffer users = new IntBuffer();
+        IntBuffer friends = new IntBuffer();
+        source.accept((userId, friendId) -> {
+            users.add(userId);
+            friends.add(friendId);
+        });
+
+        int maxUserId = 0;
+        for (int i = 0; i < users.size; i++) {
+            maxUserId = Math.max(maxUserId, users.values[i]);
+        }
+        int[] offsets = new int[maxUserId + 2];
+        for (int i = 0; i < users.size; i++) {
+            offsets[users.values[i] + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] targets = new int[users.size];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int i = 0; i < users.size; i++) {
+            targets[next[users.values[i]]++] = friends.values[i];
+        }
+        for (int id = 0; id <= maxUserId; id++) {
+            Arrays.sort(targets, offsets[id], offsets[id + 1]);
+        }
+        state = new State(offsets, targets);
+    }
+
+    /**
+     * @return отсортированные id друзей пользователя
+     */
+    public int[] friends(int userId) {
+        return friendsOf(state, userId);
+    }
+
+    private static int[] friendsOf(State current, int userId) {
+        int[] changed = current.delta.get(userId);
+        if (changed != null) {
+            return changed.clone();
+        }
+        if (!current.hasBase(userId)) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(current.targets, current.offsets[userId], current.offsets[userId + 1]);
+    }
+
+    public boolean contains(int userId, int friendId) {
+        State current = state;
+        int[] changed = current.delta.get(userId);
+        if (changed != null) {
+            return Arrays.binarySearch(changed, friendId) >= 0;
+        }
+        return current.hasBase(userId) && Arrays.binarySearch(current.targets,
+                current.offsets[userId], current.offsets[userId + 1], friendId) >= 0;
+    }
+
+    /**
+     * Пересечение отсортированных списков друзей слиянием за O(d1 + d2).
+     *
+     * @return отсортированные id общих друзей
+     */
+    public int[] commonFriends(int userId, int otherId) {
+        State current = state;
+        int[] a = current.delta.get(userId);
+        int aFrom = 0;
+        int aTo;
+        if (a != null) {
+            aTo = a.length;
+        } else if (current.hasBase(userId)) {
+            a = current.targets;
+            aFrom = current.offsets[userId];
+            aTo = current.offsets[userId + 1];
+        } else {
+            return EMPTY;
+        }
+        int[] b = current.delta.get(otherId);
+        int bFrom = 0;
+        int bTo;
+        if (b != null) {
+            bTo = b.length;
+        } else if (current.hasBase(otherId)) {
+            b = current.targets;
+            bFrom = current.offsets[otherId];
+            bTo = current.offsets[otherId + 1];
+        } else {
+            return EMPTY;
+        }
+
+        int[] common = new int[Math.min(aTo - aFrom, bTo - bFrom)];
+        int size = 0;
+        while (aFrom < aTo && bFrom < bTo) {
+            if (a[aFrom] < b[bFrom]) {
+                aFrom++;
+            } else if (a[aFrom] > b[bFrom]) {
+                bFrom++;
+            } else {
+                common[size++] = a[aFrom];
+                aFrom++;
+                bFrom++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    /**
+     * Друзья друзей, ещё не ставшие друзьями пользователя, по убыванию числа общих друзей
+     * (при равенстве — по возрастанию id). Обход второго уровня ограничен
+     * {@link #MAX_TWO_HOP_EDGES} рёбрами, у пользователей с большим числом друзей
+     * он распараллеливается в fork-join пуле. Хранятся только limit лучших кандидатов.
+     *
+     * @return id рекомендованных пользователей
+     */
+    public int[] suggestions(int userId, int limit) {
+        State current = state;
+        int[] friends = friendsOf(current, userId);
+        int end = 0;
+        long edges = 0;
+        while (end < friends.length && edges < MAX_TWO_HOP_EDGES) {
+            edges += degree(current, friends[end++]);
+        }
+
+        TwoHopTask task = new TwoHopTask(current, userId, friends, 0, end);
+        long[] candidates = end >= PARALLEL_FAN_OUT ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+
+        PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+        for (long candidate : candidates) {
+            if (top.size() < limit) {
+                top.add(candidate);
+            } else if (candidate > top.peek()) {
+                top.poll();
+                top.add(candidate);
+            }
+        }
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = TwoHopTask.idOf(top.poll());
+        }
+        return result;
+    }
+
+    public synchronized void add(int userId, int friendId) {
+        int[] current = friends(userId);
+        int index = Arrays.binarySearch(current, friendId);
+        if (index >= 0) {
+            return;
+        }
+        int position = -index - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, position);
+        updated[position] = friendId;
+        System.arraycopy(current, position, updated, position + 1, current.length - position);
+        change(userId, updated);
+    }
+
+    public synchronized void remove(int userId, int friendId) {
+        int[] current = friends(userId);
+        int position = Arrays.binarySearch(current, friendId);
+        if (position < 0) {
+            return;
+        }
+        int[] updated = new int[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, position);
+        System.arraycopy(current, position + 1, updated, position, updated.length - position);
+        change(userId, updated);
+    }
+
+    /**
+     * Сливает дельту в основной массив.
+     */
+    public synchronized void compact() {
+        State current = state;
+        if (current.delta.isEmpty()) {
+            return;
+        }
+        int maxUserId = current.offsets.length - 2;
+        for (Integer userId : current.delta.keySet()) {
+            maxUserId = Math.max(maxUserId, userId);
+        }
+        int[] offsets = new int[maxUserId + 2];
+        int size = 0;
+        for (int id = 0; id <= maxUserId; id++) {
+            offsets[id] = size;
+            size += degree(current, id);
+        }
+        offsets[maxUserId + 1] = size;
+
+        int[] targets = new int[size];
+        for (int id = 0; id <= maxUserId; id++) {
+            int[] changed = current.delta.get(id);
+            if (changed != null) {
+                System.arraycopy(changed, 0, targets, offsets[id], changed.length);
+            } else if (current.hasBase(id)) {
+                System.arraycopy(current.targets, current.offsets[id], targets, offsets[id], degree(current, id));
+            }
+        }
+        state = new State(offsets, targets);
+    }
+
+    private void change(int userId, int[] friends) {
+        State current = state;
+        current.delta.put(userId, friends);
+        if (current.delta.size() > Math.max(MIN_COMPACTION_THRESHOLD, current.offsets.length / 16)) {
+            compact();
+        }
+    }
+
+    private static int degree(State state, int userId) {
+        int[] changed = state.delta.get(userId);
+        if (changed != null) {
+            return changed.length;
+        }
+        return state.hasBase(userId) ? state.offsets[userId + 1] - state.offsets[userId] : 0;
+    }
+
+    /**
+     * Считает общих друзей для кандидатов из друзей friends[from..to).
+     * Результат — отсортированные по id кандидаты в виде (count << 32 | MAX_VALUE - id),
+     * так что большее значение означает лучшего кандидата.
+     */
+    private static final class TwoHopTask extends RecursiveTask<long[]> {
+        private final State state;
+        private final int userId;
+        private final int[] friends;
+        private final int from;
+        private final int to;
+
+        private TwoHopTask(State state, int userId, int[] friends, int from, int to) {
+            this.state = state;
+            this.userId = userId;
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > PARALLEL_FAN_OUT) {
+                int middle = (from + to) >>> 1;
+                TwoHopTask left = new TwoHopTask(state, userId, friends, from, middle);
+                left.fork();
+                long[] right = new TwoHopTask(state, userId, friends, middle, to).compute();
+                return merge(left.join(), right);
+            }
+
+            IntBuffer candidates = new IntBuffer();
+            for (int i = from; i < to; i++) {
+                int friendId = friends[i];
+                int[] changed = state.delta.get(friendId);
+                if (changed != null) {
+                    addCandidates(candidates, changed, 0, changed.length);
+                } else if (state.hasBase(friendId)) {
+                    addCandidates(candidates, state.targets, state.offsets[friendId], state.offsets[friendId + 1]);
+                }
+            }
+            int[] ids = Arrays.copyOf(candidates.values, candidates.size);
+            Arrays.sort(ids);
+
+            long[] counted = new long[ids.length];
+            int size = 0;
+            for (int i = 0; i < ids.length; ) {
+                int j = i;
+                while (j < ids.length && ids[j] == ids[i]) {
+                    j++;
+                }
+                counted[size++] = pack(ids[i], j - i);
+                i = j;
+            }
+            return Arrays.copyOf(counted, size);
+        }
+
+        private void addCandidates(IntBuffer candidates, int[] source, int start, int end) {
+            for (int i = start; i < end; i++) {
+                int candidate = source[i];
+                if (candidate != userId && Arrays.binarySearch(friends, candidate) < 0) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        private static long[] merge(long[] a, long[] b) {
+            long[] merged = new long[a.length + b.length];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < a.length && j < b.length) {
+                int idA = idOf(a[i]);
+                int idB = idOf(b[j]);
+                if (idA < idB) {
+                    merged[size++] = a[i++];
+                } else if (idA > idB) {
+                    merged[size++] = b[j++];
+                } else {
+                    merged[size++] = pack(idA, countOf(a[i++]) + countOf(b[j++]));
+                }
+            }
+            while (i < a.length) {
+                merged[size++] = a[i++];
+            }
+            while (j < b.length) {
+                merged[size++] = b[j++];
+            }
+            return Arrays.copyOf(merged, size);
+        }
+
+        private static long pack(int id, int count) {
+            return (long) count << 32 | (Integer.MAX_VALUE - id);
+        }
+
+        private static int idOf(long packed) {
+            return Integer.MAX_VALUE - (int) (packed & 0xFFFFFFFFL);
+        }
+
+        private static int countOf(long packed) {
+            return (int) (packed >>> 32);
+        }
+    }
+
+    private static final class State {
+        private final int[] offsets;
+        private final int[] targets;
+        private final Map<Integer, int[]> delta = new ConcurrentHashMap<>();
+
+        private State(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        private boolean hasBase(int userId) {
+            return userId >= 0 && userId + 1 < offsets.length;
+        }
+    }
+
+    private static final class IntBuffer {
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
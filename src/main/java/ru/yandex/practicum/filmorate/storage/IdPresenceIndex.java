@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Битовая карта существующих id сущностей. Позволяет проверять существование фильма
+ * или пользователя в памяти, без отдельного запроса к БД.
+ */
+public class IdPresenceIndex {
+    private final BitSet ids = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public boolean contains(Integer id) {
+        if (id == null || id < 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(int id) {
+        lock.writeLock().lock();
+        try {
+            ids.set(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет id после фиксации текущей транзакции, чтобы при откате в индексе не остался
+     * несуществующий id. Вне транзакции id добавляется сразу.
+     */
+    public void addOnCommit(int id) {
+        TransactionHooks.afterCommit(() -> add(id));
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
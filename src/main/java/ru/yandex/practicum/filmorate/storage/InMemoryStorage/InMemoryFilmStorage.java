@@ -1,28 +1,48 @@
 package ru.yandex.practicum.filmorate.storage.InMemoryStorage;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Потокобезопасное хранилище фильмов: id выдаются атомарно,
+ * лайки не теряются при конкурентном обновлении фильма.
+ */
 @Component("inMemoryFilmStorage")
+@Profile("in-memory")
 public class InMemoryFilmStorage implements FilmStorage {
-    private final HashMap<Integer, Film> films = new HashMap<>();
-    private Integer filmId = 1;
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    private final AtomicInteger filmId = new AtomicInteger();
 
     @Override
     public Film createFilm(Film film) {
-        film.setId(filmId++);
+        film.setId(filmId.incrementAndGet());
         films.put(film.getId(), film);
         return film;
     }
 
     @Override
     public Film updateFilm(Film film) {
-        films.put(film.getId(), film);
-        return film;
+        // фильм обновляется на месте: лайки меняются только через addLike/deleteLike
+        // и не должны теряться при конкурентном обновлении
+        return films.computeIfPresent(film.getId(), (id, stored) -> {
+            stored.setName(film.getName());
+            stored.setDescription(film.getDescription());
+            stored.setDuration(film.getDuration());
+            stored.setReleaseDate(film.getReleaseDate());
+            stored.setMpa(film.getMpa());
+            stored.setGenres(film.getGenres());
+            return stored;
+        });
     }
 
     @Override
@@ -30,16 +50,45 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public Page<Film> findFilms(FilmFilter filter, int limit) {
+        Comparator<Film> order = filter.isPopular()
+                ? Comparator.comparingInt(InMemoryFilmStorage::likesCount).reversed().thenComparing(Film::getId)
+                : Comparator.comparing(Film::getId);
+        List<Film> rows = films.values().stream()
+                .filter(film -> matches(filter, film))
+                .sorted(order)
+                .limit(limit + 1L)
+                .collect(Collectors.toList());
+        return filter.isPopular()
+                ? Page.ofCursor(rows, limit, film -> Page.encodeCursor(likesCount(film), film.getId()))
+                : Page.of(rows, limit, Film::getId);
+    }
+
     @Override
     public Film getById(Integer id) {
         return films.get(id);
     }
 
-    @Override
-    public List<Film> getTopFilms(Integer count) {
-        return getFilms().stream()
-                .sorted(Collections.reverseOrder(Comparator.comparingInt(film -> film.getLikes().size())))
-                .limit(count)
-                .collect(Collectors.toList());
+    private static boolean matches(FilmFilter filter, Film film) {
+        if (filter.isPopular() && filter.getAfterLikes() != null) {
+            int likes = likesCount(film);
+            int afterLikes = filter.getAfterLikes();
+            if (likes > afterLikes || likes == afterLikes && film.getId() <= filter.getAfterId()) {
+                return false;
+            }
+        } else if (!filter.isPopular() && film.getId() <= filter.getAfterId()) {
+            return false;
+        }
+        int year = film.getReleaseDate().getYear();
+        return (filter.getGenreId() == null || film.getGenres() != null && film.getGenres().stream()
+                .anyMatch(genre -> filter.getGenreId().equals(genre.getId())))
+                && (filter.getMpaId() == null || filter.getMpaId().equals(film.getMpa().getId()))
+                && (filter.getYearFrom() == null || year >= filter.getYearFrom())
+                && (filter.getYearTo() == null || year <= filter.getYearTo());
+    }
+
+    private static int likesCount(Film film) {
+        return film.getLikes() == null ? 0 : film.getLikes().size();
     }
 }
@@ -1,30 +1,45 @@
 package ru.yandex.practicum.filmorate.storage.InMemoryStorage;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+/**
+ * Потокобезопасное хранилище пользователей: id выдаются атомарно,
+ * друзья не теряются при конкурентном обновлении пользователя.
+ */
 @Component("inMemoryUserStorage")
+@Profile("in-memory")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private Integer userId = 1;
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final AtomicInteger userId = new AtomicInteger();
 
     @Override
     public User createUser(User user) {
-        user.setId(userId++);
+        user.setId(userId.incrementAndGet());
         users.put(user.getId(), user);
         return user;
     }
 
     @Override
     public User updateUser(User user) {
-        users.put(user.getId(), user);
-        return user;
+        // пользователь обновляется на месте: друзья меняются только через addFriend/deleteFriend
+        // и не должны теряться при конкурентном обновлении
+        return users.computeIfPresent(user.getId(), (id, stored) -> {
+            stored.setEmail(user.getEmail());
+            stored.setLogin(user.getLogin());
+            stored.setName(user.getName());
+            stored.setBirthday(user.getBirthday());
+            return stored;
+        });
     }
 
     @Override
@@ -32,6 +47,13 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getUsersPage(Integer afterId, Integer limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public User getById(Integer id) {
         return users.get(id);
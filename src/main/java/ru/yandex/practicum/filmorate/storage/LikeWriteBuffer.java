@@ -0,0 +1,256 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Отложенная запись лайков (write-behind, свойство filmorate.likes.write-behind.enabled).
+ * Лайк и его отмена копятся как +1/-1 для пары (фильм, пользователь): встречные события
+ * взаимно гасятся и не доходят до БД. Фоновый поток раз в flush-interval-ms или при
+ * накоплении flush-size пар записывает их пакетом в одной транзакции.
+ * Буфер ограничен capacity парами — при переполнении запросы ждут записи не дольше submit-timeout-ms,
+ * затем отклоняются (RejectedExecutionException, ответ 503).
+ * При остановке приложения оставшиеся события записываются.
+ */
+@Component
+@ConditionalOnProperty(value = "filmorate.likes.write-behind.enabled", havingValue = "true")
+@Slf4j
+public class LikeWriteBuffer {
+    private static final int PAIR_LOCKS = 64;
+
+    private final FilmLikesDao filmLikesDao;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+    private final int flushSize;
+    private final int capacity;
+    private final int batchSize;
+    private final long submitTimeoutMs;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // события одной пары применяются к состоянию в памяти и попадают в буфер под одной блокировкой
+    private final Object[] pairLocks = new Object[PAIR_LOCKS];
+
+    // изменения, ещё не взятые на запись, и записываемые сейчас; защищены монитором буфера
+    private Map<Long, Integer> pending = new HashMap<>();
+    private Map<Long, Integer> inFlight = Map.of();
+    private boolean flushRequested;
+    private boolean closed;
+
+    public LikeWriteBuffer(FilmLikesDao filmLikesDao, PlatformTransactionManager transactionManager,
+                           @Value("${filmorate.likes.write-behind.flush-interval-ms}") long flushIntervalMs,
+                           @Value("${filmorate.likes.write-behind.flush-size}") int flushSize,
+                           @Value("${filmorate.likes.write-behind.capacity}") int capacity,
+                           @Value("${filmorate.likes.write-behind.submit-timeout-ms}") long submitTimeoutMs,
+                           @Value("${filmorate.batch.chunk-size}") int batchSize) {
+        this.filmLikesDao = filmLikesDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushSize = flushSize;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.submitTimeoutMs = submitTimeoutMs;
+        for (int i = 0; i < PAIR_LOCKS; i++) {
+            pairLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Like write-behind enabled: every {} ms or {} pending likes", flushIntervalMs, flushSize);
+    }
+
+    /**
+     * Принимает лайк (liked = true) или его отмену. accept применяет событие к состоянию в памяти
+     * и решает, принимать ли его (false — лайк уже есть или его нет). Он вызывается под блокировкой
+     * пары, а не буфера: события по одной паре попадают в буфер в том же порядке, что и в это состояние,
+     * а медленный accept не задерживает остальные пары и запись.
+     *
+     * @return результат accept
+     * @throws RejectedExecutionException если буфер полон дольше submit-timeout-ms
+     */
+    public boolean submit(int filmId, int userId, boolean liked, BooleanSupplier accept) {
+        long key = key(filmId, userId);
+        awaitCapacity();
+        synchronized (pairLocks[Math.floorMod(Long.hashCode(key), PAIR_LOCKS)]) {
+            if (!accept.getAsBoolean()) {
+                return false;
+            }
+            synchronized (this) {
+                pending.merge(key, liked ? 1 : -1, LikeWriteBuffer::sum);
+                if (pending.size() >= flushSize) {
+                    requestFlush();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Записывает накопленные события в БД. При ошибке они возвращаются в буфер до следующей попытки.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Integer> batch;
+            synchronized (this) {
+                flushRequested = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new HashMap<>();
+                notifyAll();
+            }
+            try {
+                write(batch);
+                log.info("{} pending likes written", batch.size());
+            } finally {
+                synchronized (this) {
+                    if (inFlight == batch) {
+                        // запись не удалась: события возвращаются, порядок для суммы не важен
+                        batch.forEach((key, delta) -> pending.merge(key, delta, LikeWriteBuffer::sum));
+                    }
+                    inFlight = Map.of();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Все лайки с учётом ещё не записанных событий: строки БД, отменённые в буфере, пропускаются,
+     * а добавленные в буфере передаются после строк БД.
+     */
+    public void streamLikes(int fetchSize, BiConsumer<Integer, Integer> consumer) {
+        Map<Long, Integer> overlay;
+        synchronized (this) {
+            overlay = new HashMap<>(inFlight);
+            pending.forEach((key, delta) -> overlay.merge(key, delta, LikeWriteBuffer::sum));
+        }
+        Set<Long> seen = new HashSet<>();
+        filmLikesDao.streamLikes(fetchSize, (filmId, userId) -> {
+            long key = key(filmId, userId);
+            Integer delta = overlay.get(key);
+            if (delta == null) {
+                consumer.accept(filmId, userId);
+            } else if (delta > 0) {
+                // пакет мог записаться уже во время чтения
+                seen.add(key);
+                consumer.accept(filmId, userId);
+            }
+        });
+        overlay.forEach((key, delta) -> {
+            if (delta > 0 && !seen.contains(key)) {
+                consumer.accept((int) (key >>> 32), (int) (long) key);
+            }
+        });
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size() + inFlight.size();
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+        log.info("Like write-behind buffer drained");
+    }
+
+    private void write(Map<Long, Integer> batch) {
+        List<FilmLike> likes = new ArrayList<>();
+        List<FilmLike> unlikes = new ArrayList<>();
+        batch.forEach((key, delta) -> (delta > 0 ? likes : unlikes)
+                .add(new FilmLike((int) (key >>> 32), (int) (long) key)));
+        transactionTemplate.executeWithoutResult(status -> {
+            filmLikesDao.unlikeAll(unlikes, batchSize);
+            filmLikesDao.likeAll(likes, batchSize);
+        });
+        synchronized (this) {
+            inFlight = Map.of();
+        }
+    }
+
+    /**
+     * Ждёт места в буфере; несколько запросов, дождавшихся одновременно, могут превысить capacity на своё число.
+     */
+    private synchronized void awaitCapacity() {
+        if (closed) {
+            throw new IllegalStateException("Like write-behind buffer is closed");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(submitTimeoutMs);
+        while (pending.size() >= capacity) {
+            requestFlush();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new RejectedExecutionException("Like write-behind buffer is full");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the like buffer", e);
+            }
+        }
+    }
+
+    private void requestFlush() {
+        if (!flushRequested && !flusher.isShutdown()) {
+            flushRequested = true;
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DataAccessException | AlreadyExistException e) {
+            // лайк той же пары мог быть параллельно записан мимо буфера: при повторе NOT EXISTS его пропустит
+            log.error("Pending likes could not be written, will retry", e);
+        }
+    }
+
+    private static long key(int filmId, int userId) {
+        return (long) filmId << 32 | (userId & 0xFFFFFFFFL);
+    }
+
+    private static Integer sum(Integer a, Integer b) {
+        int sum = a + b;
+        return sum == 0 ? null : sum;
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.h2.tools.Server;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Локальные реплики для проверки разделения чтения и записи: H2 TCP-серверы внутри приложения,
+ * в которые раз в sync-interval-ms копируется согласованный снимок основной БД.
+ * Реплика обновляется одной транзакцией, поэтому читатели видят либо старый снимок, либо новый;
+ * интервал копирования имитирует отставание реплик.
+ */
+@Slf4j
+public class LocalReplicaSync {
+    // родительские таблицы раньше дочерних
+    private static final List<String> TABLES =
+            List.of("users", "mpa", "genres", "films", "friendship", "film_genres", "film_likes");
+
+    private final DataSource primary;
+    private final List<DataSource> replicas = new ArrayList<>();
+    private final List<Server> servers = new ArrayList<>();
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LocalReplicaSync(DataSource primary, List<String> replicaUrls, String username, String password) {
+        this.primary = primary;
+        for (String url : replicaUrls) {
+            replicas.add(new DriverManagerDataSource(url, username, password));
+        }
+    }
+
+    /**
+     * Запускает TCP-серверы на ports и создаёт схему на репликах.
+     */
+    public void start(List<Integer> ports) throws SQLException {
+        for (int port : ports) {
+            servers.add(Server.createTcpServer("-tcpPort", String.valueOf(port), "-ifNotExists").start());
+        }
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        replicas.forEach(replica -> DatabasePopulatorUtils.execute(schema, replica));
+        log.info("Local replicas started on ports {}", ports);
+    }
+
+    /**
+     * Начинает периодическое копирование; вызывается, когда схема и данные основной БД уже созданы.
+     */
+    public void scheduleSync(long syncIntervalMs) {
+        syncer.scheduleWithFixedDelay(this::syncQuietly, 0, syncIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Local replicas are synced every {} ms", syncIntervalMs);
+    }
+
+    /**
+     * Копирует все таблицы основной БД в каждую реплику.
+     */
+    public void sync() {
+        TransactionTemplate snapshot = new TransactionTemplate(new DataSourceTransactionManager(primary));
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.setReadOnly(true);
+        Map<String, TableRows> tables = snapshot.execute(status -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(primary);
+            Map<String, TableRows> rows = new LinkedHashMap<>();
+            TABLES.forEach(table -> rows.put(table, readTable(jdbcTemplate, table)));
+            return rows;
+        });
+        for (DataSource replica : replicas) {
+            new TransactionTemplate(new DataSourceTransactionManager(replica)).executeWithoutResult(status -> {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(replica);
+                List<String> childrenFirst = new ArrayList<>(TABLES);
+                Collections.reverse(childrenFirst);
+                childrenFirst.forEach(table -> jdbcTemplate.update("DELETE FROM " + table));
+                tables.forEach((table, rows) -> rows.insertInto(jdbcTemplate, table));
+            });
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        syncer.shutdown();
+        syncer.awaitTermination(1, TimeUnit.MINUTES);
+        servers.forEach(Server::stop);
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (DataAccessException e) {
+            log.error("Replicas could not be synced, will retry", e);
+        }
+    }
+
+    private static TableRows readTable(JdbcTemplate jdbcTemplate, String table) {
+        TableRows rows = new TableRows();
+        jdbcTemplate.query("SELECT * FROM " + table, (RowCallbackHandler) rs -> {
+            if (rows.columns.isEmpty()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    rows.columns.add(metaData.getColumnName(i));
+                }
+            }
+            Object[] values = new Object[rows.columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            rows.values.add(values);
+        });
+        return rows;
+    }
+
+    private static final class TableRows {
+        private final List<String> columns = new ArrayList<>();
+        private final List<Object[]> values = new ArrayList<>();
+
+        private void insertInto(JdbcTemplate jdbcTemplate, String table) {
+            if (values.isEmpty()) {
+                return;
+            }
+            String sqlQuery = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                    + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+            jdbcTemplate.batchUpdate(sqlQuery, values);
+        }
+    }
+}
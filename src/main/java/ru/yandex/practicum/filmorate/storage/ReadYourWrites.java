@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Привязка текущего запроса к основной БД. Пока запрос привязан, read-only транзакции
+ * читают с основной БД, а не с реплик: клиент сразу видит свои изменения, даже если
+ * реплики их ещё не получили. Флаг привязан к потоку; задачи, переданные в другие потоки,
+ * переносят его через {@link #propagate(Runnable)}.
+ */
+public final class ReadYourWrites {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * @return задача, которая выполняется с привязкой вызывающего потока
+     */
+    public static Runnable propagate(Runnable task) {
+        if (!isPinned()) {
+            return task;
+        }
+        return () -> {
+            boolean previous = isPinned();
+            pin();
+            try {
+                task.run();
+            } finally {
+                if (!previous) {
+                    unpin();
+                }
+            }
+        };
+    }
+}
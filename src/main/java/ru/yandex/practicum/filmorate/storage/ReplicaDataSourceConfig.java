@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разделение чтения и записи (свойство filmorate.datasource.replicas.enabled).
+ * Основная БД — spring.datasource.* со своим пулом spring.datasource.hikari.*, реплики —
+ * filmorate.datasource.replicas.urls с отдельным пулом размером replicas.pool-size у каждой.
+ * Read-only транзакции сервисов читают с реплик (см. {@link ReadReplicaRoutingDataSource}).
+ * Если заданы replicas.local.ports, реплики поднимаются внутри приложения ({@link LocalReplicaSync}) —
+ * только в профилях dev и test: копирование всех таблиц по расписанию годится лишь для проверки.
+ */
+@Configuration
+@ConditionalOnProperty(value = "filmorate.datasource.replicas.enabled", havingValue = "true")
+@Slf4j
+public class ReplicaDataSourceConfig {
+    private static final String[] LOCAL_REPLICA_PROFILES = {"dev", "test"};
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private LocalReplicaSync localReplicas;
+    private long syncIntervalMs;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 ObjectProvider<MeterRegistry> registry,
+                                 @Value("${filmorate.datasource.replicas.urls}") List<String> replicaUrls,
+                                 @Value("${filmorate.datasource.replicas.pool-size}") int replicaPoolSize,
+                                 @Value("${filmorate.datasource.replicas.local.ports}") List<Integer> localPorts,
+                                 @Value("${filmorate.datasource.replicas.local.sync-interval-ms}")
+                                 long syncIntervalMs) throws SQLException {
+        // реестр метрик сам зависит от DataSource, поэтому берётся при запуске пула
+        MetricsTrackerFactory metrics = (poolName, poolStats) ->
+                new MicrometerMetricsTrackerFactory(registry.getObject()).create(poolName, poolStats);
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        primary.setMetricsTrackerFactory(metrics);
+        pools.add(primary);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setJdbcUrl(url);
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setMetricsTrackerFactory(metrics);
+            replicas.add(replica);
+        }
+        pools.addAll(replicas);
+
+        if (!localPorts.isEmpty()) {
+            if (!environment.acceptsProfiles(Profiles.of(LOCAL_REPLICA_PROFILES))) {
+                throw new IllegalStateException("Local replicas are only available in profiles "
+                        + String.join(", ", LOCAL_REPLICA_PROFILES));
+            }
+            localReplicas = new LocalReplicaSync(primary, replicaUrls,
+                    properties.determineUsername(), properties.determinePassword());
+            localReplicas.start(localPorts);
+            this.syncIntervalMs = syncIntervalMs;
+        }
+        log.info("Read/write split: primary pool of {}, {} replicas with pools of {}",
+                primary.getMaximumPoolSize(), replicas.size(), replicaPoolSize);
+        // настройки по умолчанию заданы явно, иначе прокси при создании берёт соединение и запускает пул
+        LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy();
+        lazy.setTargetDataSource(new ReadReplicaRoutingDataSource(primary, replicas));
+        lazy.setDefaultAutoCommit(primary.isAutoCommit());
+        lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return lazy;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReplicaSync() {
+        if (localReplicas != null) {
+            localReplicas.scheduleSync(syncIntervalMs);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (localReplicas != null) {
+            localReplicas.stop();
+        }
+        pools.forEach(HikariDataSource::close);
+    }
+}
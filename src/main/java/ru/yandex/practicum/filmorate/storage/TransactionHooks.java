@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Отложенное обновление структур в памяти до фиксации транзакции,
+ * чтобы после отката в них не осталось несуществующих в БД данных.
+ */
+public final class TransactionHooks {
+    private TransactionHooks() {
+    }
+
+    /**
+     * Выполняет action после фиксации текущей транзакции, а вне транзакции — сразу.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
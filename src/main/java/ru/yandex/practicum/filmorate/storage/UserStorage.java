@@ -11,5 +11,10 @@ public interface UserStorage {
 
     List<User> getUsers();
 
+    /**
+     * Пользователи с id больше afterId в порядке возрастания id, не более limit штук.
+     */
+    List<User> getUsersPage(Integer afterId, Integer limit);
+
     User getById(Integer id);
 }
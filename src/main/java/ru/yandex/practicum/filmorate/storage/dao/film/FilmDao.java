@@ -1,7 +1,46 @@
 package ru.yandex.practicum.filmorate.storage.dao.film;
 
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
 public interface FilmDao extends FilmStorage {
     boolean checkFilmExist(Integer id);
+
+    /**
+     * Топ фильмов по likes_count через индекс столбца, в порядке PopularityLeaderboard.
+     * Сервис отдаёт топ из рейтинга в памяти; запрос — запасной путь без рейтинга
+     * (например, если он не помещается в память) и проверяется тестами планов и DAO.
+     */
+    List<Film> getTopFilms(Integer count);
+
+    /**
+     * Фильмы с указанными id в том же порядке; отсутствующие id пропускаются.
+     */
+    List<Film> getByIds(List<Integer> ids);
+
+    /**
+     * Вставляет фильмы одним запросом INSERT с несколькими строками VALUES и проставляет им id.
+     */
+    List<Film> createFilms(List<Film> films);
+
+    /**
+     * Какие из переданных id фильмов существуют.
+     */
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
+    /**
+     * Число лайков каждого фильма, включая фильмы без лайков.
+     */
+    Map<Integer, Integer> getLikesCounts();
+
+    /**
+     * Построчно передаёт все фильмы (вместе с жанрами) в consumer, не собирая их в список.
+     */
+    void streamFilms(int fetchSize, Consumer<Film> consumer);
 }
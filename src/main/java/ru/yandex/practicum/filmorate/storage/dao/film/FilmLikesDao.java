@@ -1,7 +1,34 @@
 package ru.yandex.practicum.filmorate.storage.dao.film;
 
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
 public interface FilmLikesDao {
     void like(Integer id, Integer userId);
 
-    void unlike(Integer id, Integer userId);
+    /**
+     * Пакетно добавляет лайки и обновляет счётчики лайков фильмов.
+     *
+     * @return для каждого лайка — был ли он добавлен (false, если такой лайк уже есть)
+     */
+    boolean[] likeAll(List<FilmLike> likes, int batchSize);
+
+    /**
+     * @return false, если лайка не было
+     */
+    boolean unlike(Integer id, Integer userId);
+
+    /**
+     * Пакетно удаляет лайки и обновляет счётчики лайков фильмов.
+     *
+     * @return для каждого лайка — был ли он удалён (false, если лайка не было)
+     */
+    boolean[] unlikeAll(List<FilmLike> likes, int batchSize);
+
+    /**
+     * Построчно передаёт все лайки в consumer как пары (filmId, userId).
+     */
+    void streamLikes(int fetchSize, BiConsumer<Integer, Integer> consumer);
 }
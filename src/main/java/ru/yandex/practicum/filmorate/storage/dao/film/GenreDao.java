@@ -1,7 +1,9 @@
 package ru.yandex.practicum.filmorate.storage.dao.film;
 
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -9,6 +11,21 @@ public interface GenreDao {
 
     void addGenreInFilm(Integer filmId, Integer genreId);
 
+    /**
+     * Добавляет фильму жанры одним пакетным запросом.
+     */
+    void addGenresInFilm(Integer filmId, Collection<Integer> genreIds);
+
+    /**
+     * Добавляет жанры сразу нескольким фильмам одним пакетным запросом.
+     */
+    void addGenresInFilms(List<Film> films, int batchSize);
+
+    /**
+     * Удаляет у фильма указанные жанры одним пакетным запросом.
+     */
+    void deleteGenresFromFilm(Integer filmId, Collection<Integer> genreIds);
+
     Set<Genre> getFilmGenres(Integer filmId);
 
     Genre getGenre(Integer id);
@@ -2,33 +2,53 @@ package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.IdPresenceIndex;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
 
+import javax.annotation.PostConstruct;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component("filmDaoImpl")
 @RequiredArgsConstructor
 public class FilmDaoImpl implements FilmDao {
+    private static final String FILMS_QUERY = "SELECT f.* FROM films AS f ";
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
+    private final FilmFacetStatistics facetStatistics;
+    private final IdPresenceIndex filmIds = new IdPresenceIndex();
+
+    @PostConstruct
+    public void loadIdIndex() {
+        filmIds.clear();
+        jdbcTemplate.query("SELECT id FROM films", (RowCallbackHandler) rs -> filmIds.add(rs.getInt("id")));
+    }
 
     @Override
     public Film createFilm(Film film) {
         String sqlQuery = "INSERT INTO films (name, description, duration, releaseDate, mpa_id) VALUES (?,?,?,?,?)";
-        Integer mpaId = film.getMpa().getId();
+        Mpa mpa = referenceData.getMpa(film.getMpa().getId());
         KeyHolder id = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
@@ -37,20 +57,19 @@ public class FilmDaoImpl implements FilmDao {
             ps.setString(2, film.getDescription());
             ps.setInt(3, film.getDuration());
             ps.setDate(4, java.sql.Date.valueOf(film.getReleaseDate()));
-            ps.setInt(5, mpaId);
+            ps.setInt(5, mpa.getId());
             return ps;
         }, id);
 
         film.setId(Objects.requireNonNull(id.getKey()).intValue());
-        String mpaName = "SELECT mpa_id, name FROM mpa WHERE mpa_id = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(mpaName, this::mapRowToMpa, mpaId);
         film.setMpa(mpa);
+        filmIds.addOnCommit(film.getId());
         return film;
     }
 
     @Override
     public Film updateFilm(Film film) {
-        Integer mpaId = film.getMpa().getId();
+        Mpa mpa = referenceData.getMpa(film.getMpa().getId());
         String sqlQuery = "UPDATE films SET " +
                 "name = ?," +
                 "description = ?," +
@@ -58,72 +77,187 @@ public class FilmDaoImpl implements FilmDao {
                 "releaseDate = ?," +
                 "mpa_id = ?" +
                 "WHERE id = ?";
-        jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), film.getDuration(), film.getReleaseDate(),
-                mpaId, film.getId());
-
-        String mpaName = "SELECT mpa_id, name FROM mpa WHERE mpa_id = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(mpaName, this::mapRowToMpa, mpaId);
+        int updated = jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), film.getDuration(),
+                film.getReleaseDate(), mpa.getId(), film.getId());
+        if (updated == 0) {
+            throw new NotFoundException(String.format("Film ID = %d does not exist", film.getId()));
+        }
         film.setMpa(mpa);
         return film;
     }
 
     @Override
     public List<Film> getFilms() {
-        String sqlQuery = "SELECT * FROM films";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
+        String sqlQuery = FILMS_QUERY + "ORDER BY f.id";
+        return loadGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm));
+    }
+
+    @Override
+    public Page<Film> findFilms(FilmFilter filter, int limit) {
+        FilmFilterQuery query = FilmFilterQuery.build(filter, limit + 1, facetStatistics);
+        // лайки последнего фильма страницы нужны для курсора при сортировке по популярности
+        int[] lastLikes = new int[1];
+        List<Film> rows = jdbcTemplate.query(query.getSql(), (rs, rowNum) -> {
+            if (rowNum == limit - 1) {
+                lastLikes[0] = rs.getInt("likes_count");
+            }
+            return mapRowToFilm(rs, rowNum);
+        }, query.getArgs());
+        Page<Film> page = filter.isPopular()
+                ? Page.ofCursor(rows, limit, film -> Page.encodeCursor(lastLikes[0], film.getId()))
+                : Page.of(rows, limit, Film::getId);
+        loadGenres(page.getItems());
+        return page;
     }
 
     @Override
     public Film getById(Integer id) {
-        String sqlQuery = "SELECT * FROM films WHERE id = ?";
-        return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToFilm, id);
+        String sqlQuery = FILMS_QUERY + "WHERE f.id = ?";
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::mapRowToFilm, id);
+        if (films.isEmpty()) {
+            throw new NotFoundException(String.format("Film ID = %d does not exist", id));
+        }
+        return loadGenres(films).get(0);
     }
 
     @Override
     public List<Film> getTopFilms(Integer count) {
-        String sqlQuery = "SELECT f.*, m.name AS mpa_name FROM films AS f " +
-                "LEFT JOIN mpa AS m ON f.mpa_id = m.mpa_id " +
-                "LEFT JOIN film_likes AS lk ON f.id = lk.film_id " +
-                "GROUP BY f.id ORDER BY COUNT(lk.user_id) DESC LIMIT ?";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, count);
+        String sqlQuery = FILMS_QUERY + "ORDER BY f.likes_count DESC, f.id LIMIT ?";
+        return loadGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, count));
     }
 
     @Override
     public boolean checkFilmExist(Integer id) {
-        String sqlQuery = "SELECT id FROM films WHERE id = ?";
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (!rowSet.next()) {
+        if (!filmIds.contains(id)) {
             throw new NotFoundException(String.format("Film ID = %d does not exist", id));
         }
         return true;
     }
 
-    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
-        int mpaId = rs.getInt("mpa_id");
-        String mpaName = "SELECT mpa_id, name FROM mpa WHERE mpa_id = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(mpaName, this::mapRowToMpa, mpaId);
+    @Override
+    public List<Film> getByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String inSql = String.join(",", Collections.nCopies(ids.size(), "?"));
+        String sqlQuery = FILMS_QUERY + "WHERE f.id IN (" + inSql + ")";
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : loadGenres(jdbcTemplate.query(sqlQuery, this::mapRowToFilm, ids.toArray()))) {
+            filmsById.put(film.getId(), film);
+        }
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-        int filmId = rs.getInt("id");
-        String sql = "SELECT genre_id, name FROM genres WHERE genre_id IN" +
-                "(SELECT genre_id FROM film_genres WHERE film_id = ?)";
-        Set<Genre> genres = new HashSet<>(jdbcTemplate.query(sql, this::mapRowToGenre, filmId));
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        String values = String.join(",", Collections.nCopies(films.size(), "(?,?,?,?,?)"));
+        String sqlQuery = "INSERT INTO films (name, description, duration, releaseDate, mpa_id) VALUES " + values;
+        KeyHolder keyHolder = new GeneratedKeyHolder();
 
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery, new String[]{"id"});
+            int i = 1;
+            for (Film film : films) {
+                ps.setString(i++, film.getName());
+                ps.setString(i++, film.getDescription());
+                ps.setInt(i++, film.getDuration());
+                ps.setDate(i++, java.sql.Date.valueOf(film.getReleaseDate()));
+                ps.setInt(i++, film.getMpa().getId());
+            }
+            return ps;
+        }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).get("id")).intValue());
+            film.setMpa(referenceData.getMpa(film.getMpa().getId()));
+            filmIds.addOnCommit(film.getId());
+        }
+        return films;
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(filmIds::contains)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        String sqlQuery = "SELECT id, likes_count FROM films";
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, (RowCallbackHandler) rs ->
+                likesCounts.put(rs.getInt("id"), rs.getInt("likes_count")));
+        return likesCounts;
+    }
+
+    @Override
+    public void streamFilms(int fetchSize, Consumer<Film> consumer) {
+        String sqlQuery = "SELECT f.*, fg.genre_id FROM films AS f " +
+                "LEFT JOIN film_genres AS fg ON f.id = fg.film_id " +
+                "ORDER BY f.id, fg.genre_id";
+        // Строки одного фильма идут подряд, фильм отдаётся в consumer, когда встречен следующий
+        Film[] current = new Film[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = mapRowToFilm(rs, 0);
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                current[0].getGenres().add(referenceData.getGenre(genreId));
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    /**
+     * Заполняет жанры сразу для всех переданных фильмов одним запросом к film_genres,
+     * вместо отдельного запроса на каждый фильм.
+     */
+    private List<Film> loadGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        String inSql = String.join(",", Collections.nCopies(filmsById.size(), "?"));
+        String sqlQuery = "SELECT film_id, genre_id FROM film_genres " +
+                "WHERE film_id IN (" + inSql + ") ORDER BY film_id, genre_id";
+        jdbcTemplate.query(sqlQuery, (RowCallbackHandler) rs -> filmsById.get(rs.getInt("film_id"))
+                .getGenres()
+                .add(referenceData.getGenre(rs.getInt("genre_id"))), filmsById.keySet().toArray());
+        return films;
+    }
+
+    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
         return Film.builder()
-                .id(filmId)
+                .id(rs.getInt("id"))
                 .name(rs.getString("name"))
                 .description(rs.getString("description"))
                 .duration(rs.getInt("duration"))
                 .releaseDate(rs.getDate("releaseDate").toLocalDate())
-                .mpa(mpa)
-                .genres(genres)
+                .mpa(referenceData.getMpa(rs.getInt("mpa_id")))
+                .genres(new LinkedHashSet<>())
                 .build();
     }
-
-    private Mpa mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
-        return new Mpa(rs.getInt("mpa_id"), rs.getString("name"));
-    }
-
-    private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
-        return new Genre(rs.getInt("genre_id"), rs.getString("name"));
-    }
 }
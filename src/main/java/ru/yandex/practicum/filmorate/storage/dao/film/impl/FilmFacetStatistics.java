@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.storage.dao.film.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Число фильмов по жанрам, рейтингам и годам выпуска для оценки избирательности фасетов.
+ * Считается при старте и раз в refresh-interval-ms: для выбора плана хватает приблизительных значений.
+ * Здесь же хранится имя индекса первичного ключа films: H2 генерирует его сам, а USE INDEX () без имени
+ * оставляет первичный ключ только для обхода по порядку, без условий на id.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FilmFacetStatistics {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Counts counts = new Counts(0, Map.of(), Map.of(), new TreeMap<>());
+    private volatile String primaryKeyIndex = "";
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${filmorate.films.facet-statistics.refresh-interval-ms}",
+            initialDelayString = "${filmorate.films.facet-statistics.refresh-interval-ms}")
+    public void refresh() {
+        Map<Integer, Long> byGenre = new HashMap<>();
+        jdbcTemplate.query("SELECT genre_id, COUNT(*) AS films FROM film_genres GROUP BY genre_id",
+                (RowCallbackHandler) rs -> byGenre.put(rs.getInt("genre_id"), rs.getLong("films")));
+        Map<Integer, Long> byMpa = new HashMap<>();
+        jdbcTemplate.query("SELECT mpa_id, COUNT(*) AS films FROM films GROUP BY mpa_id",
+                (RowCallbackHandler) rs -> byMpa.put(rs.getInt("mpa_id"), rs.getLong("films")));
+        NavigableMap<Integer, Long> byYear = new TreeMap<>();
+        jdbcTemplate.query("SELECT EXTRACT(YEAR FROM releaseDate) AS release_year, COUNT(*) AS films FROM films " +
+                        "GROUP BY release_year",
+                (RowCallbackHandler) rs -> byYear.put(rs.getInt("release_year"), rs.getLong("films")));
+        primaryKeyIndex = jdbcTemplate.queryForObject("SELECT index_name FROM information_schema.indexes " +
+                "WHERE table_name = 'FILMS' AND index_type_name = 'PRIMARY KEY'", String.class);
+        long films = byMpa.values().stream().mapToLong(Long::longValue).sum();
+        counts = new Counts(films, byGenre, byMpa, byYear);
+        log.info("Film facet statistics refreshed: {} films", films);
+    }
+
+    public long films() {
+        return counts.getFilms();
+    }
+
+    public String primaryKeyIndex() {
+        return primaryKeyIndex;
+    }
+
+    public long genre(int genreId) {
+        return counts.getByGenre().getOrDefault(genreId, 0L);
+    }
+
+    public long mpa(int mpaId) {
+        return counts.getByMpa().getOrDefault(mpaId, 0L);
+    }
+
+    /**
+     * Фильмы, вышедшие с yearFrom по yearTo включительно; null — без ограничения с этой стороны.
+     */
+    public long years(Integer yearFrom, Integer yearTo) {
+        return counts.getByYear()
+                .subMap(yearFrom == null ? Integer.MIN_VALUE : yearFrom, true,
+                        yearTo == null ? Integer.MAX_VALUE : yearTo, true)
+                .values().stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    @Value
+    private static class Counts {
+        long films;
+        Map<Integer, Long> byGenre;
+        Map<Integer, Long> byMpa;
+        NavigableMap<Integer, Long> byYear;
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage.dao.film.impl;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL страницы фильмов по фильтру. Выборку ведёт путь с наименьшей оценкой прочитанных строк:
+ * индекс самого избирательного фасета или обход в порядке выдачи (первичный ключ либо
+ * films_likes_count_idx), если подходящих фильмов много и страница наберётся быстро.
+ * Остальные фасеты проверяются для каждой строки, выбранный индекс закрепляется USE INDEX.
+ * Оценки берутся из {@link FilmFacetStatistics} в предположении независимости фасетов.
+ */
+@Getter
+final class FilmFilterQuery {
+    enum Driver { GENRE, MPA, YEAR, ORDER }
+
+    private final Driver driver;
+    private final String sql;
+    private final Object[] args;
+
+    private FilmFilterQuery(Driver driver, String sql, Object[] args) {
+        this.driver = driver;
+        this.sql = sql;
+        this.args = args;
+    }
+
+    /**
+     * @param rows сколько строк выбрать
+     */
+    static FilmFilterQuery build(FilmFilter filter, int rows, FilmFacetStatistics statistics) {
+        Driver driver = chooseDriver(filter, rows, statistics);
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (filter.getGenreId() != null) {
+            conditions.add(driver == Driver.GENRE
+                    ? "f.id IN (SELECT fg.film_id FROM film_genres AS fg WHERE fg.genre_id = ?)"
+                    : "EXISTS (SELECT 1 FROM film_genres AS fg WHERE fg.film_id = f.id AND fg.genre_id = ?)");
+            args.add(filter.getGenreId());
+        }
+        if (filter.getMpaId() != null) {
+            conditions.add("f.mpa_id = ?");
+            args.add(filter.getMpaId());
+        }
+        if (filter.getYearFrom() != null) {
+            conditions.add("f.releaseDate >= ?");
+            args.add(LocalDate.of(filter.getYearFrom(), 1, 1));
+        }
+        if (filter.getYearTo() != null) {
+            conditions.add("f.releaseDate < ?");
+            args.add(LocalDate.of(filter.getYearTo() + 1, 1, 1));
+        }
+        String order;
+        if (filter.isPopular()) {
+            if (filter.getAfterLikes() != null) {
+                // первое условие — диапазон по films_likes_count_idx, второе отсекает уже выданные фильмы
+                conditions.add("f.likes_count <= ? AND (f.likes_count < ? OR f.id > ?)");
+                args.add(filter.getAfterLikes());
+                args.add(filter.getAfterLikes());
+                args.add(filter.getAfterId());
+            }
+            order = "f.likes_count DESC, f.id";
+        } else {
+            conditions.add("f.id > ?");
+            args.add(filter.getAfterId());
+            order = "f.id";
+        }
+        args.add(rows);
+        String sql = "SELECT f.* FROM films AS f USE INDEX (" + index(driver, filter.isPopular(), statistics) + ") " +
+                (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ") +
+                "ORDER BY " + order + " LIMIT ?";
+        return new FilmFilterQuery(driver, sql, args.toArray());
+    }
+
+    /**
+     * Оценка числа прочитанных строк для каждого пути. Индекс фасета читается целиком, кроме
+     * films_mpa_idx (mpa_id, id) при сортировке по id: он отдаёт фильмы уже в порядке выдачи.
+     */
+    static Driver chooseDriver(FilmFilter filter, int rows, FilmFacetStatistics statistics) {
+        double films = Math.max(statistics.films(), 1);
+        double genre = filter.getGenreId() == null ? films : statistics.genre(filter.getGenreId());
+        double mpa = filter.getMpaId() == null ? films : statistics.mpa(filter.getMpaId());
+        boolean hasYears = filter.getYearFrom() != null || filter.getYearTo() != null;
+        double years = hasYears ? statistics.years(filter.getYearFrom(), filter.getYearTo()) : films;
+        double matches = Math.max(genre * mpa * years / (films * films), 1e-9);
+
+        Driver driver = Driver.ORDER;
+        double cost = Math.min(films, rows * films / matches);
+        if (filter.getGenreId() != null && genre < cost) {
+            driver = Driver.GENRE;
+            cost = genre;
+        }
+        if (filter.getMpaId() != null) {
+            double mpaCost = filter.isPopular() ? mpa : Math.min(mpa, rows * mpa / matches);
+            if (mpaCost < cost) {
+                driver = Driver.MPA;
+                cost = mpaCost;
+            }
+        }
+        if (hasYears && years < cost) {
+            driver = Driver.YEAR;
+        }
+        return driver;
+    }
+
+    /**
+     * Первичный ключ называется по имени: с ним H2 применяет к нему условия f.id > ? и f.id IN (...).
+     */
+    private static String index(Driver driver, boolean popular, FilmFacetStatistics statistics) {
+        switch (driver) {
+            case MPA:
+                return "films_mpa_idx";
+            case YEAR:
+                return "films_release_date_idx";
+            case ORDER:
+                return popular ? "films_likes_count_idx" : statistics.primaryKeyIndex();
+            default:
+                return statistics.primaryKeyIndex();
+        }
+    }
+}
@@ -1,24 +1,127 @@
 package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
 
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
 @Component
 @RequiredArgsConstructor
 public class FilmLikesDaoImpl implements FilmLikesDao {
     private final JdbcTemplate jdbcTemplate;
 
     @Override
+    @Transactional
     public void like(Integer id, Integer userId) {
         String sql = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, id, userId);
+        try {
+            jdbcTemplate.update(sql, id, userId);
+        } catch (DuplicateKeyException e) {
+            throw new AlreadyExistException(String.format(
+                    "The user with ID = %d has ALREADY LIKE the film with ID = %d", userId, id), e);
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", id);
     }
 
     @Override
-    public void unlike(Integer id, Integer userId) {
+    @Transactional
+    public boolean[] likeAll(List<FilmLike> likes, int batchSize) {
+        // NOT EXISTS вместо ошибки по первичному ключу, чтобы повторный лайк не прерывал весь пакет;
+        // лайк параллельной незафиксированной транзакции он не видит, и тогда пакет откатывается целиком
+        String sql = "INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT CAST(? AS INTEGER), CAST(? AS INTEGER) FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(sql, likes, batchSize, (ps, like) -> {
+                ps.setInt(1, like.getFilmId());
+                ps.setInt(2, like.getUserId());
+                ps.setInt(3, like.getFilmId());
+                ps.setInt(4, like.getUserId());
+            });
+        } catch (DuplicateKeyException e) {
+            throw new AlreadyExistException("Some of the likes were added concurrently, retry the batch", e);
+        }
+
+        boolean[] inserted = new boolean[likes.size()];
+        Map<Integer, Integer> addedByFilm = new HashMap<>();
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                inserted[i] = count > 0;
+                if (inserted[i]) {
+                    addedByFilm.merge(likes.get(i).getFilmId(), 1, Integer::sum);
+                }
+                i++;
+            }
+        }
+        updateLikesCounts(addedByFilm, batchSize);
+        return inserted;
+    }
+
+    @Override
+    @Transactional
+    public boolean unlike(Integer id, Integer userId) {
         String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, id, userId);
+        if (jdbcTemplate.update(sql, id, userId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", id);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] unlikeAll(List<FilmLike> likes, int batchSize) {
+        int[][] counts = jdbcTemplate.batchUpdate("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?",
+                likes, batchSize, (ps, like) -> {
+                    ps.setInt(1, like.getFilmId());
+                    ps.setInt(2, like.getUserId());
+                });
+
+        boolean[] deleted = new boolean[likes.size()];
+        Map<Integer, Integer> removedByFilm = new HashMap<>();
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                deleted[i] = count > 0;
+                if (deleted[i]) {
+                    removedByFilm.merge(likes.get(i).getFilmId(), -1, Integer::sum);
+                }
+                i++;
+            }
+        }
+        updateLikesCounts(removedByFilm, batchSize);
+        return deleted;
+    }
+
+    private void updateLikesCounts(Map<Integer, Integer> deltaByFilm, int batchSize) {
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?",
+                new ArrayList<>(deltaByFilm.entrySet()), batchSize, (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setInt(2, entry.getKey());
+                });
+    }
+
+    @Override
+    public void streamLikes(int fetchSize, BiConsumer<Integer, Integer> consumer) {
+        String sql = "SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getInt("film_id"), rs.getInt("user_id")));
     }
 }
@@ -2,15 +2,14 @@ package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -18,6 +17,7 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class GenreDaoImpl implements GenreDao {
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
 
     @Override
     public void addGenreInFilm(Integer filmId, Integer genreId) {
@@ -25,28 +25,63 @@ public class GenreDaoImpl implements GenreDao {
         jdbcTemplate.update(sql, filmId, genreId);
     }
 
+    @Override
+    public void addGenresInFilm(Integer filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
+    @Override
+    public void addGenresInFilms(List<Film> films, int batchSize) {
+        List<int[]> rows = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                rows.add(new int[]{film.getId(), genre.getId()});
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, rows, batchSize, (ps, row) -> {
+            ps.setInt(1, row[0]);
+            ps.setInt(2, row[1]);
+        });
+    }
+
+    @Override
+    public void deleteGenresFromFilm(Integer filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
     @Override
     public Set<Genre> getFilmGenres(Integer filmId) {
-        String sql = "SELECT genre_id, name FROM genres WHERE genre_id IN" +
-                "(SELECT genre_id FROM film_genres WHERE film_id = ?)";
-        return new HashSet<>(jdbcTemplate.query(sql, this::mapRowToGenre, filmId));
+        String sql = "SELECT genre_id FROM film_genres WHERE film_id = ? ORDER BY genre_id";
+        return new LinkedHashSet<>(jdbcTemplate.query(sql,
+                (rs, rowNum) -> referenceData.getGenre(rs.getInt("genre_id")), filmId));
     }
 
     @Override
     public Genre getGenre(Integer id) {
-        String sql = "SELECT * FROM genres WHERE genre_id = ?";
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, id);
-        if (rowSet.next()) {
-            return jdbcTemplate.queryForObject(sql, this::mapRowToGenre, id);
-        } else {
-            throw new NotFoundException(String.format("Genre ID = %d does not exist", id));
-        }
+        return referenceData.getGenre(id);
     }
 
     @Override
     public List<Genre> getAllGenres() {
-        String sqlQuery = "SELECT * FROM genres";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToGenre);
+        return referenceData.getAllGenres();
     }
 
     @Override
@@ -54,11 +89,4 @@ public class GenreDaoImpl implements GenreDao {
         String sql = "DELETE FROM film_genres WHERE film_id = ?";
         jdbcTemplate.update(sql, filmId);
     }
-
-    private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
-        return new Genre(
-                rs.getInt("genre_id"),
-                rs.getString("name")
-        );
-    }
 }
@@ -1,43 +1,24 @@
 package ru.yandex.practicum.filmorate.storage.dao.film.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.dao.film.MpaDao;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class MpaDaoImpl implements MpaDao {
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataRegistry referenceData;
 
     @Override
     public Mpa getMpa(Integer id) {
-        String sql = "SELECT * FROM mpa WHERE mpa_id = ?";
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sql, id);
-        if (rowSet.next()) {
-            return jdbcTemplate.queryForObject(sql, this::mapRowToMpa, id);
-        } else {
-            throw new NotFoundException(String.format("MPA with ID = %d does not exist", id));
-        }
+        return referenceData.getMpa(id);
     }
 
     @Override
     public List<Mpa> getAllMpa() {
-        String sqlQuery = "SELECT * FROM mpa";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToMpa);
-    }
-
-    private Mpa mapRowToMpa(ResultSet rs, int rowNum) throws SQLException {
-        return new Mpa(
-                rs.getInt("mpa_id"),
-                rs.getString("name")
-        );
+        return referenceData.getAllMpa();
     }
 }
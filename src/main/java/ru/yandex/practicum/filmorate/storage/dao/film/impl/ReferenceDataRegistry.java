@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storage.dao.film.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Справочники MPA и жанров. Таблицы mpa и genres заполняются только из data.sql,
+ * поэтому читаются один раз при старте и хранятся в неизменяемых массивах, где индекс — это id.
+ * После изменения справочников в БД нужно вызвать reload().
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataRegistry {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void reload() {
+        List<Mpa> mpa = jdbcTemplate.query("SELECT mpa_id, name FROM mpa ORDER BY mpa_id",
+                (rs, rowNum) -> new Mpa(rs.getInt("mpa_id"), rs.getString("name")));
+        List<Genre> genres = jdbcTemplate.query("SELECT genre_id, name FROM genres ORDER BY genre_id",
+                (rs, rowNum) -> new Genre(rs.getInt("genre_id"), rs.getString("name")));
+        snapshot = new Snapshot(
+                List.copyOf(mpa), index(mpa, Mpa::getId, Mpa[]::new),
+                List.copyOf(genres), index(genres, Genre::getId, Genre[]::new));
+        log.info("Reference data loaded: {} MPA, {} genres", mpa.size(), genres.size());
+    }
+
+    public Mpa getMpa(Integer id) {
+        Mpa[] mpaById = snapshot.mpaById;
+        if (id == null || id < 0 || id >= mpaById.length || mpaById[id] == null) {
+            throw new NotFoundException(String.format("MPA with ID = %d does not exist", id));
+        }
+        return mpaById[id];
+    }
+
+    public List<Mpa> getAllMpa() {
+        return snapshot.mpa;
+    }
+
+    public Genre getGenre(Integer id) {
+        Genre[] genresById = snapshot.genresById;
+        if (id == null || id < 0 || id >= genresById.length || genresById[id] == null) {
+            throw new NotFoundException(String.format("Genre ID = %d does not exist", id));
+        }
+        return genresById[id];
+    }
+
+    public List<Genre> getAllGenres() {
+        return snapshot.genres;
+    }
+
+    private static <T> T[] index(List<T> items, Function<T, Integer> idGetter, IntFunction<T[]> arrayFactory) {
+        int maxId = items.stream().mapToInt(idGetter::apply).max().orElse(0);
+        T[] byId = arrayFactory.apply(maxId + 1);
+        for (T item : items) {
+            byId[idGetter.apply(item)] = item;
+        }
+        return byId;
+    }
+
+    private static final class Snapshot {
+        private final List<Mpa> mpa;
+        private final Mpa[] mpaById;
+        private final List<Genre> genres;
+        private final Genre[] genresById;
+
+        private Snapshot(List<Mpa> mpa, Mpa[] mpaById, List<Genre> genres, Genre[] genresById) {
+            this.mpa = mpa;
+            this.mpaById = mpaById;
+            this.genres = genres;
+            this.genresById = genresById;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.storage.dao.film.impl;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Триггер H2 перед удалением пользователя. Его лайки удаляются каскадом по внешнему ключу мимо
+ * FilmLikesDao, поэтому счётчики likes_count понравившихся ему фильмов уменьшаются здесь, до каскада.
+ */
+public class UserLikesCountTrigger implements Trigger {
+    private static final String SQL = "UPDATE films SET likes_count = likes_count - 1 " +
+            "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)";
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SQL)) {
+            // первая колонка users — id
+            statement.setObject(1, oldRow[0]);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -1,15 +1,40 @@
 package ru.yandex.practicum.filmorate.storage.dao.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface FriendDao {
-    void addFriend(Integer id, Integer friendId);
+    /**
+     * @return false, если пользователи уже друзья
+     */
+    boolean addFriend(Integer id, Integer friendId);
 
-    void deleteFriend(Integer id, Integer friendId);
+    /**
+     * Пакетно добавляет друзей.
+     *
+     * @return для каждой пары — была ли она добавлена (false, если пользователи уже друзья)
+     */
+    boolean[] addFriends(List<Friendship> friendships, int batchSize);
+
+    /**
+     * @return false, если пользователи не были друзьями
+     */
+    boolean deleteFriend(Integer id, Integer friendId);
 
     List<User> getCommonFriends(Integer id, Integer otherId);
 
     List<User> getAllFriends(Integer id);
+
+    /**
+     * Друзья друзей пользователя, ещё не ставшие его друзьями, по убыванию числа общих друзей.
+     */
+    List<User> getFriendSuggestions(Integer id, int limit);
+
+    /**
+     * Построчно передаёт все связи дружбы в consumer как пары (userId, friendUserId).
+     */
+    void streamFriendship(int fetchSize, BiConsumer<Integer, Integer> consumer);
 }
@@ -1,7 +1,28 @@
 package ru.yandex.practicum.filmorate.storage.dao.user;
 
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
 public interface UserDao extends UserStorage {
     boolean checkUserExist(Integer id);
+
+    /**
+     * Вставляет пользователей одним запросом INSERT с несколькими строками VALUES и проставляет им id.
+     */
+    List<User> createUsers(List<User> users);
+
+    /**
+     * Какие из переданных id пользователей существуют.
+     */
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+
+    /**
+     * Построчно передаёт всех пользователей в consumer, не собирая их в список.
+     */
+    void streamUsers(int fetchSize, Consumer<User> consumer);
 }
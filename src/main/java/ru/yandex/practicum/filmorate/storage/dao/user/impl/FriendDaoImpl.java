@@ -1,49 +1,168 @@
 package ru.yandex.practicum.filmorate.storage.dao.user.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.ReadYourWrites;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
 import ru.yandex.practicum.filmorate.storage.dao.user.FriendDao;
 
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class FriendDaoImpl implements FriendDao {
+    private static final int LOAD_FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraphIndex friendGraph = new FriendGraphIndex();
+
+    @PostConstruct
+    public void loadFriendGraph() {
+        friendGraph.load(sink -> streamFriendship(LOAD_FETCH_SIZE, sink));
+    }
 
+    /**
+     * NOT EXISTS не видит незафиксированную строку параллельной транзакции, и тогда вставка
+     * нарушает первичный ключ: такой повтор тоже отклоняется как уже существующая дружба.
+     */
     @Override
-    public void addFriend(Integer id, Integer friendId) {
-        String sqlQuery = "MERGE INTO friendship (user_id, friend_user_id) VALUES (?,?)";
-        jdbcTemplate.update(sqlQuery, id, friendId);
+    public boolean addFriend(Integer id, Integer friendId) {
+        String sqlQuery = "INSERT INTO friendship (user_id, friend_user_id) " +
+                "SELECT CAST(? AS INTEGER), CAST(? AS INTEGER) FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM friendship WHERE user_id = ? AND friend_user_id = ?)";
+        boolean inserted;
+        try {
+            inserted = jdbcTemplate.update(sqlQuery, id, friendId, id, friendId) > 0;
+        } catch (DuplicateKeyException e) {
+            throw new AlreadyExistException(String.format(
+                    "User with ID = %d is ALREADY friends with user with ID = %d", friendId, id), e);
+        }
+        if (inserted) {
+            TransactionHooks.afterCommit(() -> friendGraph.add(id, friendId));
+        }
+        return inserted;
+    }
+
+    /**
+     * Если параллельная транзакция добавила ту же дружбу между проверкой NOT EXISTS и вставкой,
+     * пакет откатывается целиком и отклоняется: повтор пакета увидит её уже существующей.
+     */
+    @Override
+    @Transactional
+    public boolean[] addFriends(List<Friendship> friendships, int batchSize) {
+        String sqlQuery = "INSERT INTO friendship (user_id, friend_user_id) " +
+                "SELECT CAST(? AS INTEGER), CAST(? AS INTEGER) FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM friendship WHERE user_id = ? AND friend_user_id = ?)";
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(sqlQuery, friendships, batchSize, (ps, friendship) -> {
+                ps.setInt(1, friendship.getUserId());
+                ps.setInt(2, friendship.getFriendId());
+                ps.setInt(3, friendship.getUserId());
+                ps.setInt(4, friendship.getFriendId());
+            });
+        } catch (DuplicateKeyException e) {
+            throw new AlreadyExistException("Some of the friendships were added concurrently, retry the batch", e);
+        }
+
+        boolean[] inserted = new boolean[friendships.size()];
+        List<Friendship> added = new ArrayList<>();
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count > 0) {
+                    added.add(friendships.get(i));
+                }
+                inserted[i++] = count > 0;
+            }
+        }
+        TransactionHooks.afterCommit(() -> added.forEach(f -> friendGraph.add(f.getUserId(), f.getFriendId())));
+        return inserted;
     }
 
     @Override
-    public void deleteFriend(Integer id, Integer friendId) {
+    public boolean deleteFriend(Integer id, Integer friendId) {
         String sqlQuery = "DELETE FROM friendship WHERE user_id = ? AND friend_user_id = ?";
-        jdbcTemplate.update(sqlQuery, id, friendId);
+        boolean deleted = jdbcTemplate.update(sqlQuery, id, friendId) > 0;
+        if (deleted) {
+            TransactionHooks.afterCommit(() -> friendGraph.remove(id, friendId));
+        }
+        return deleted;
     }
 
     @Override
-    public List<User> getCommonFriends(Integer id, Integer otherId) { //Проверить
-        String sqlQuery = "SELECT * FROM users u " +
-                "WHERE u.id IN (SELECT friend_user_id FROM friendship fs WHERE fs.user_id = ?) " +
-                "AND u.id IN (SELECT friend_user_id FROM friendship fs WHERE fs.user_id = ?)";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, id, otherId);
-        return getUsersFromRowSet(rs).stream().distinct().collect(Collectors.toList());
+    public List<User> getCommonFriends(Integer id, Integer otherId) {
+        return getUsersByIds(friendGraph.commonFriends(id, otherId));
     }
 
     @Override
     public List<User> getAllFriends(Integer id) {
-        String sqlQuery = "SELECT * FROM users WHERE id IN " +
-                "(SELECT friend_user_id FROM friendship WHERE user_id = ?)";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        return getUsersFromRowSet(rs);
+        return getUsersByIds(friendGraph.friends(id));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(Integer id, int limit) {
+        int[] ranked = friendGraph.suggestions(id, limit);
+        int[] ids = ranked.clone();
+        Arrays.sort(ids);
+        Map<Integer, User> users = getUsersByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(ranked)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamFriendship(int fetchSize, BiConsumer<Integer, Integer> consumer) {
+        String sqlQuery = "SELECT user_id, friend_user_id FROM friendship ORDER BY user_id, friend_user_id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getInt("user_id"), rs.getInt("friend_user_id")));
+    }
+
+    /**
+     * Загружает пользователей одним запросом; ids отсортированы, поэтому порядок сохраняется.
+     * ids взяты из графа дружбы в памяти, который уже видит зафиксированные изменения, поэтому
+     * строки читаются с основной БД: на отстающей реплике нового пользователя может ещё не быть.
+     */
+    private List<User> getUsersByIds(int[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.length, "?"));
+        String sqlQuery = "SELECT * FROM users WHERE id IN (" + placeholders + ") ORDER BY id";
+        boolean pinned = ReadYourWrites.isPinned();
+        ReadYourWrites.pin();
+        try {
+            SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, Arrays.stream(ids).boxed().toArray());
+            return getUsersFromRowSet(rs);
+        } finally {
+            if (!pinned) {
+                ReadYourWrites.unpin();
+            }
+        }
     }
 
     private List<User> getUsersFromRowSet(SqlRowSet rs) {
@@ -3,25 +3,40 @@ package ru.yandex.practicum.filmorate.storage.dao.user.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdPresenceIndex;
 import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
 
+import javax.annotation.PostConstruct;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component("userDaoImpl")
 @RequiredArgsConstructor
 @Slf4j
 public class UserDaoImpl implements UserDao {
     private final JdbcTemplate jdbcTemplate;
+    private final IdPresenceIndex userIds = new IdPresenceIndex();
+
+    @PostConstruct
+    public void loadIdIndex() {
+        userIds.clear();
+        jdbcTemplate.query("SELECT id FROM users", (RowCallbackHandler) rs -> userIds.add(rs.getInt("id")));
+    }
 
     @Override
     public User createUser(User user) {
@@ -37,6 +52,7 @@ public class UserDaoImpl implements UserDao {
         }, keyHolder);
 
         user.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        userIds.addOnCommit(user.getId());
         return user;
     }
 
@@ -48,8 +64,11 @@ public class UserDaoImpl implements UserDao {
                 "name = ?," +
                 "birthday = ?" +
                 "WHERE id = ?";
-        jdbcTemplate.update(sqlQuery, user.getEmail(), user.getLogin(), user.getName(),
+        int updated = jdbcTemplate.update(sqlQuery, user.getEmail(), user.getLogin(), user.getName(),
                 user.getBirthday(), user.getId());
+        if (updated == 0) {
+            throw new NotFoundException(String.format("User ID = %d does not exist", user.getId()));
+        }
         return user;
     }
 
@@ -59,22 +78,75 @@ public class UserDaoImpl implements UserDao {
         return jdbcTemplate.query(sqlQuery, this::mapRowToUser);
     }
 
+    @Override
+    public List<User> getUsersPage(Integer afterId, Integer limit) {
+        String sqlQuery = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, afterId, limit);
+    }
+
     @Override
     public User getById(Integer id) {
         String sqlQuery = "SELECT * FROM users WHERE id = ?";
-        return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToUser, id);
+        List<User> users = jdbcTemplate.query(sqlQuery, this::mapRowToUser, id);
+        if (users.isEmpty()) {
+            throw new NotFoundException(String.format("User ID = %d does not exist", id));
+        }
+        return users.get(0);
+    }
+
+    @Override
+    public List<User> createUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        String values = String.join(",", Collections.nCopies(users.size(), "(?,?,?,?)"));
+        String sqlQuery = "INSERT INTO users (email, login, name, birthday) VALUES " + values;
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery, new String[]{"id"});
+            int i = 1;
+            for (User user : users) {
+                ps.setString(i++, user.getEmail());
+                ps.setString(i++, user.getLogin());
+                ps.setString(i++, user.getName());
+                ps.setDate(i++, java.sql.Date.valueOf(user.getBirthday()));
+            }
+            return ps;
+        }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(((Number) keys.get(i).get("id")).intValue());
+            userIds.addOnCommit(users.get(i).getId());
+        }
+        return users;
+    }
+
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(userIds::contains)
+                .collect(Collectors.toSet());
     }
 
     @Override
     public boolean checkUserExist(Integer id) {
-        String sqlQuery = "SELECT id FROM users WHERE id = ?";
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (!rowSet.next()) {
+        if (!userIds.contains(id)) {
             throw new NotFoundException(String.format("User ID = %d does not exist", id));
         }
         return true;
     }
 
+    @Override
+    public void streamUsers(int fetchSize, Consumer<User> consumer) {
+        String sqlQuery = "SELECT * FROM users ORDER BY id";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRowToUser(rs, 0)));
+    }
+
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
         return User.builder()
                 .id(rs.getInt("id"))
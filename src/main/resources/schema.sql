@@ -1,4 +1,6 @@
- -- Для тестов
+ -- Схема создаётся заново при каждом запуске (spring.sql.init.mode=always), миграций нет:
+-- таблицы удаляются вместе с данными. Внешние ключи ниже объявлены в расчёте на пустую БД —
+-- в уже существующих таблицах остались бы прежние безымянные ключи, и ALTER TABLE добавил бы вторые
 DROP TABLE IF EXISTS users, friendship, mpa, films, genres, film_genres, film_likes;
 
 -- Таблица с пользователями
@@ -14,10 +16,16 @@ CREATE TABLE IF NOT EXISTS users (
 -- Таблица со статусами дружбы
 CREATE TABLE IF NOT EXISTS friendship (
         user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE ON UPDATE CASCADE,
-        friend_user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE ON UPDATE CASCADE,
+        friend_user_id INTEGER NOT NULL,
         PRIMARY KEY (user_id, friend_user_id)
 );
 
+-- Кто добавил пользователя в друзья. Внешний ключ объявлен после индекса с теми же колонками,
+-- тогда H2 проверяет его по этому индексу и не создаёт свой безымянный
+CREATE INDEX IF NOT EXISTS friendship_friend_idx ON friendship (friend_user_id);
+ALTER TABLE friendship ADD CONSTRAINT IF NOT EXISTS friendship_friend_fk
+        FOREIGN KEY (friend_user_id) REFERENCES users(id) ON DELETE CASCADE ON UPDATE CASCADE;
+
 -- Таблица с рейтингами фильмов
 CREATE TABLE IF NOT EXISTS mpa (
         mpa_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -32,10 +40,18 @@ CREATE TABLE IF NOT EXISTS films (
         duration INTEGER CHECK (duration > 0),
         releaseDate DATE,
         mpa_id INTEGER NOT NULL,
+        likes_count INTEGER NOT NULL DEFAULT 0, -- счётчик лайков, ведётся вместе с film_likes
         FOREIGN  KEY (mpa_id) REFERENCES mpa(mpa_id),
         CONSTRAINT exist_film_name UNIQUE (name)
 );
 
+-- Индекс для выборки популярных фильмов без агрегации по film_likes
+CREATE INDEX IF NOT EXISTS films_likes_count_idx ON films (likes_count DESC, id);
+
+-- Индексы фасетов GET /films: фильмы рейтинга идут по id, год выпуска читается диапазоном
+CREATE INDEX IF NOT EXISTS films_mpa_idx ON films (mpa_id, id);
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (releaseDate, id);
+
 -- Таблица со всеми жанрами
 CREATE TABLE IF NOT EXISTS genres (
         genre_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -49,9 +65,21 @@ CREATE TABLE IF NOT EXISTS film_genres (
         PRIMARY KEY(film_id, genre_id)
 );
 
+-- Фильмы жанра для фасета genreId, по id
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id, film_id);
+
 -- Таблица с лайками пользователей
 CREATE TABLE IF NOT EXISTS film_likes (
         film_id INTEGER REFERENCES films(id) ON delete CASCADE,
-        user_id INTEGER REFERENCES users(id) ON delete CASCADE,
+        user_id INTEGER,
         PRIMARY KEY(film_id, user_id)
 );
+
+-- Лайки пользователя: рекомендации и каскадное удаление пользователя
+CREATE INDEX IF NOT EXISTS film_likes_user_idx ON film_likes (user_id);
+ALTER TABLE film_likes ADD CONSTRAINT IF NOT EXISTS film_likes_user_fk
+        FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE;
+
+-- Лайки удаляемого пользователя уходят каскадом, а счётчики likes_count его фильмов уменьшает триггер
+CREATE TRIGGER IF NOT EXISTS users_likes_count_trg BEFORE DELETE ON users
+        FOR EACH ROW CALL 'ru.yandex.practicum.filmorate.storage.dao.film.impl.UserLikesCountTrigger';
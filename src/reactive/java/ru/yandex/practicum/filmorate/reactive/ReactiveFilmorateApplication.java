@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Неблокирующий вариант приложения: WebFlux и R2DBC вместо Spring MVC и JDBC, те же маршруты
+ * /films, /users, /genres и /mpa. Собирается и запускается с Maven-профилем reactive.
+ * Бины пакета помечены профилем reactive, чтобы основное приложение их не подхватывало.
+ */
+@SpringBootApplication
+@Profile("reactive")
+public class ReactiveFilmorateApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveFilmorateApplication.class)
+                .profiles("reactive")
+                .web(WebApplicationType.REACTIVE)
+                .run(args);
+    }
+
+    /**
+     * Tomcat тоже есть в classpath и выбирается по умолчанию, а запросы должен обслуживать
+     * Netty с небольшим числом потоков event loop.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
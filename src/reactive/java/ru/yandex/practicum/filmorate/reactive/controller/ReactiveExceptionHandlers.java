@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.reactive.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import javax.validation.ConstraintViolationException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestControllerAdvice
+@Profile("reactive")
+@Slf4j
+public class ReactiveExceptionHandlers {
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleInvalidBody(final WebExchangeBindException e) {
+        log.debug("{}: {}", e.getClass(), e.getMessage());
+        return Map.of("error", e.getFieldErrors().stream()
+                .map(FieldError::getDefaultMessage)
+                .sorted()
+                .collect(Collectors.joining("; ")));
+    }
+
+    @ExceptionHandler({ConstraintViolationException.class, ValidationException.class, AlreadyExistException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleBadRequest(final RuntimeException e) {
+        log.debug("{}: {}", e.getClass(), e.getMessage());
+        return Map.of("error", e.getMessage());
+    }
+
+    @ExceptionHandler(NotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public Map<String, String> handleNotFound(final RuntimeException e) {
+        log.debug("{}: {}", e.getClass(), e.getMessage());
+        return Map.of("error", e.getMessage());
+    }
+
+    @ExceptionHandler(Exception.class)
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public Map<String, String> handleServerError(Exception e) {
+        log.debug("{} (ServerError): {}", e.getClass(), e.getMessage());
+        return Map.of("error", String.valueOf(e.getMessage()));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.reactive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.reactive.service.ReactiveFilmService;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import java.util.List;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/films")
+@RequiredArgsConstructor
+public class ReactiveFilmController {
+    private final ReactiveFilmService filmService;
+
+    @PostMapping
+    public Mono<Film> create(@Valid @RequestBody Film film) {
+        return filmService.create(film);
+    }
+
+    @PutMapping
+    public Mono<Film> update(@Valid @RequestBody Film film) {
+        return filmService.update(film);
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<BatchItemResult>> createBatch(@RequestBody List<Film> films) {
+        return filmService.createBatch(films);
+    }
+
+    @PutMapping("/likes/batch")
+    public Mono<List<BatchItemResult>> addLikes(@RequestBody List<FilmLike> likes) {
+        return filmService.addLikes(likes);
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public Mono<Void> addLike(@PathVariable("id") Integer id, @PathVariable("userId") Integer userId) {
+        return filmService.addLike(id, userId);
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public Mono<Void> deleteLike(@PathVariable("id") Integer id, @PathVariable("userId") Integer userId) {
+        return filmService.deleteLike(id, userId);
+    }
+
+    @GetMapping
+    public Flux<Film> getFilms() {
+        return filmService.getFilms();
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<Page<Film>> getFilmsPage(
+            @RequestParam(value = "after", required = false) String after, @RequestParam("limit") Integer limit) {
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Film> getFilmById(@PathVariable("id") Integer filmId) {
+        return filmService.getFilm(filmId);
+    }
+
+    @GetMapping("/popular")
+    public Flux<Film> getTopFilms(@Positive @RequestParam(value = "count", defaultValue = "10") Integer count) {
+        return filmService.getTopFilms(count);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.reactive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveGenreDao;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveMpaDao;
+
+/**
+ * Справочники жанров и рейтингов MPA.
+ */
+@RestController
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveReferenceController {
+    private final ReactiveGenreDao genreDao;
+    private final ReactiveMpaDao mpaDao;
+
+    @GetMapping("/genres/{id}")
+    public Mono<Genre> getGenre(@PathVariable Integer id) {
+        return genreDao.getGenre(id);
+    }
+
+    @GetMapping("/genres")
+    public Flux<Genre> getAllGenres() {
+        return genreDao.getAllGenres();
+    }
+
+    @GetMapping("/mpa/{id}")
+    public Mono<Mpa> getMpa(@PathVariable Integer id) {
+        return mpaDao.getMpa(id);
+    }
+
+    @GetMapping("/mpa")
+    public Flux<Mpa> getAllMpa() {
+        return mpaDao.getAllMpa();
+    }
+}
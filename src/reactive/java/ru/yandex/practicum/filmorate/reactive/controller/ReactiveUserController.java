@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.reactive.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.reactive.service.ReactiveFilmService;
+import ru.yandex.practicum.filmorate.reactive.service.ReactiveUserService;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/users")
+@RequiredArgsConstructor
+public class ReactiveUserController {
+    private final ReactiveUserService userService;
+    private final ReactiveFilmService filmService;
+
+    @PostMapping
+    public Mono<User> create(@Valid @RequestBody User user) {
+        return userService.create(user);
+    }
+
+    @PutMapping
+    public Mono<User> update(@Valid @RequestBody User user) {
+        return userService.update(user);
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<BatchItemResult>> createBatch(@RequestBody List<User> users) {
+        return userService.createBatch(users);
+    }
+
+    @PutMapping("/friends/batch")
+    public Mono<List<BatchItemResult>> addFriends(@RequestBody List<Friendship> friendships) {
+        return userService.addFriends(friendships);
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public Mono<Void> addFriend(@PathVariable("id") Integer id, @PathVariable("friendId") Integer friendId) {
+        return userService.addFriend(id, friendId);
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public Mono<Void> deleteFriend(@PathVariable("id") Integer id, @PathVariable("friendId") Integer friendId) {
+        return userService.deleteFriend(id, friendId);
+    }
+
+    @GetMapping
+    public Flux<User> getUsers() {
+        return userService.getUsers();
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<Page<User>> getUsersPage(
+            @RequestParam(value = "after", required = false) String after, @RequestParam("limit") Integer limit) {
+        return userService.getUsersPage(after, limit);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<User> getUserById(@PathVariable("id") Integer userId) {
+        return userService.getUser(userId);
+    }
+
+    @GetMapping("/{id}/friends")
+    public Flux<User> getUserFriends(@PathVariable("id") Integer userId) {
+        return userService.getUserFriends(userId);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public Flux<User> getFriendSuggestions(
+            @PathVariable("id") Integer id, @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public Flux<User> getCommonFriends(@PathVariable("id") Integer id, @PathVariable("otherId") Integer otherId) {
+        return userService.getCommonFriends(id, otherId);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Flux<Film> getRecommendations(
+            @PathVariable("id") Integer id, @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        return filmService.getRecommendations(id, limit);
+    }
+}
@@ -0,0 +1,190 @@
+package ru.yandex.practicum.filmorate.reactive.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveFilmLikesDao;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveFilmStorage;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveGenreDao;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveMpaDao;
+import ru.yandex.practicum.filmorate.service.BatchSupport;
+
+import javax.validation.Validator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@Profile("reactive")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveFilmService {
+    private final ReactiveFilmStorage filmStorage;
+    private final ReactiveUserService userService;
+    private final ReactiveGenreDao genreDao;
+    private final ReactiveFilmLikesDao filmLikesDao;
+    private final ReactiveMpaDao mpaDao;
+    private final Validator validator;
+
+    @Transactional
+    public Mono<Film> create(Film film) {
+        return resolveReferences(film)
+                .flatMap(genres -> filmStorage.createFilm(film)
+                        .flatMap(created -> saveGenres(created, genres)))
+                .doOnNext(created -> log.info("Film {} has been CREATED", created));
+    }
+
+    @Transactional
+    public Mono<Film> update(Film film) {
+        if (film.getId() == null) {
+            return Mono.error(new NotFoundException("Can't update film with ID = null"));
+        }
+        return resolveReferences(film)
+                .flatMap(genres -> filmStorage.updateFilm(film)
+                        .flatMap(updated -> saveGenres(updated, genres)))
+                .doOnNext(updated -> log.info("Film {} has been UPDATED", updated));
+    }
+
+    /**
+     * Пакетное создание фильмов: элементы создаются по очереди, ошибка одного
+     * не прерывает остальные. Результаты идут в порядке запроса.
+     */
+    public Mono<List<BatchItemResult>> createBatch(List<Film> films) {
+        return Flux.fromIterable(films)
+                .concatMap(film -> {
+                    String error = BatchSupport.validationError(validator, film);
+                    if (error == null && film.getReleaseDate() == null) {
+                        error = "Release date must be completed";
+                    }
+                    if (error != null) {
+                        return Mono.just(BatchItemResult.failed(error));
+                    }
+                    return resolveReferences(film)
+                            .flatMap(genres -> filmStorage.createFilm(film)
+                                    .flatMap(created -> saveGenres(created, genres)))
+                            .map(created -> BatchItemResult.ok(created.getId()))
+                            .onErrorResume(NotFoundException.class,
+                                    e -> Mono.just(BatchItemResult.failed(e.getMessage())))
+                            .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(BatchItemResult
+                                    .failed(String.format("Film with name '%s' already exists", film.getName()))))
+                            .onErrorResume(DataAccessException.class,
+                                    e -> Mono.just(BatchItemResult.failed("Film could not be saved")));
+                })
+                .collectList()
+                .doOnNext(results -> log.info("Batch of {} films processed", films.size()));
+    }
+
+    public Mono<List<BatchItemResult>> addLikes(List<FilmLike> likes) {
+        return Flux.fromIterable(likes)
+                .concatMap(like -> {
+                    String error = BatchSupport.validationError(validator, like);
+                    if (error != null) {
+                        return Mono.just(BatchItemResult.failed(error));
+                    }
+                    return addLike(like.getFilmId(), like.getUserId())
+                            .thenReturn(BatchItemResult.ok(null))
+                            .onErrorResume(e -> e instanceof NotFoundException || e instanceof AlreadyExistException,
+                                    e -> Mono.just(BatchItemResult.failed(e.getMessage())));
+                })
+                .collectList()
+                .doOnNext(results -> log.info("Batch of {} likes processed", likes.size()));
+    }
+
+    @Transactional
+    public Mono<Void> addLike(int filmId, int userId) {
+        return checkFilmExist(filmId)
+                .then(userService.checkUserExist(userId))
+                .then(filmLikesDao.like(filmId, userId))
+                .flatMap(liked -> liked ? Mono.<Void>empty() : Mono.error(new AlreadyExistException(String.format(
+                        "The user with ID = %d has ALREADY LIKE the film with ID = %d", userId, filmId))))
+                .doOnSuccess(ignored -> log.info("Film with ID = {} was LIKED by user with ID = {}", filmId, userId));
+    }
+
+    @Transactional
+    public Mono<Void> deleteLike(int filmId, int userId) {
+        return checkFilmExist(filmId)
+                .then(userService.checkUserExist(userId))
+                .then(filmLikesDao.unlike(filmId, userId))
+                .doOnSuccess(ignored ->
+                        log.info("Film with ID = {} was UNLIKED by user with ID = {}", filmId, userId))
+                .then();
+    }
+
+    public Mono<Film> getFilm(int id) {
+        log.info("Get a film with ID = {}", id);
+        return filmStorage.getById(id);
+    }
+
+    public Flux<Film> getFilms() {
+        return filmStorage.getFilms();
+    }
+
+    public Mono<Page<Film>> getFilmsPage(String after, Integer limit) {
+        return Mono.fromCallable(() -> {
+                    Page.checkLimit(limit);
+                    return Page.decodeCursor(after);
+                })
+                .doOnNext(afterId -> log.info("Get page of {} films after ID = {}", limit, afterId))
+                .flatMap(afterId -> filmStorage.getFilmsPage(afterId, limit + 1).collectList())
+                .map(rows -> Page.of(rows, limit, Film::getId));
+    }
+
+    public Flux<Film> getTopFilms(int count) {
+        log.info("Get {} popular films", count);
+        return filmStorage.getTopFilms(count);
+    }
+
+    /**
+     * Рекомендации по совместным лайкам считаются запросом к БД.
+     */
+    public Flux<Film> getRecommendations(int userId, Integer limit) {
+        log.info("Get {} film recommendations for the user with ID = {}", limit, userId);
+        return Mono.fromRunnable(() -> Page.checkLimit(limit))
+                .then(userService.checkUserExist(userId))
+                .thenMany(filmStorage.getRecommendations(userId, limit));
+    }
+
+    private Mono<Void> checkFilmExist(int id) {
+        return filmStorage.exists(id)
+                .flatMap(exists -> exists ? Mono.<Void>empty() : Mono.error(
+                        new NotFoundException(String.format("Film ID = %d does not exist", id))));
+    }
+
+    /**
+     * Подставляет рейтинг из справочника и возвращает жанры без повторов в порядке возрастания id.
+     * Несуществующий рейтинг или жанр приводит к NotFoundException до записи в БД.
+     */
+    private Mono<Set<Genre>> resolveReferences(Film film) {
+        List<Integer> genreIds = film.getGenres() == null ? List.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        return mpaDao.getMpa(film.getMpa().getId())
+                .doOnNext(film::setMpa)
+                .thenMany(Flux.fromIterable(genreIds).concatMap(genreDao::getGenre))
+                .<Set<Genre>>collect(LinkedHashSet::new, Set::add);
+    }
+
+    private Mono<Film> saveGenres(Film film, Set<Genre> genres) {
+        Set<Integer> genreIds = genres.stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        film.setGenres(genres);
+        return genreDao.setFilmGenres(film.getId(), genreIds).thenReturn(film);
+    }
+}
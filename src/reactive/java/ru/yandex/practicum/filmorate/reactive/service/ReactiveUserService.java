@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.reactive.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveFriendDao;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveUserStorage;
+import ru.yandex.practicum.filmorate.service.BatchSupport;
+
+import javax.validation.Validator;
+import java.util.List;
+
+@Service
+@Profile("reactive")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveUserService {
+    private final ReactiveUserStorage userStorage;
+    private final ReactiveFriendDao friendDao;
+    private final Validator validator;
+
+    public Mono<User> create(User user) {
+        if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
+        return userStorage.createUser(user)
+                .doOnNext(created -> log.info("User {} has been CREATED", created));
+    }
+
+    public Mono<User> update(User user) {
+        if (user.getId() == null) {
+            return Mono.error(new NotFoundException("Cannot update user with ID = null"));
+        }
+        return userStorage.updateUser(user)
+                .doOnNext(updated -> log.info("User {} has been UPDATED", updated));
+    }
+
+    /**
+     * Пакетное создание пользователей: элементы создаются по очереди, ошибка одного
+     * не прерывает остальные. Результаты идут в порядке запроса.
+     */
+    public Mono<List<BatchItemResult>> createBatch(List<User> users) {
+        return Flux.fromIterable(users)
+                .concatMap(user -> {
+                    String error = BatchSupport.validationError(validator, user);
+                    if (error != null) {
+                        return Mono.just(BatchItemResult.failed(error));
+                    }
+                    return create(user)
+                            .map(created -> BatchItemResult.ok(created.getId()))
+                            .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(BatchItemResult
+                                    .failed(String.format("User with email %s or login %s already exists",
+                                            user.getEmail(), user.getLogin()))))
+                            .onErrorResume(DataAccessException.class,
+                                    e -> Mono.just(BatchItemResult.failed("User could not be saved")));
+                })
+                .collectList()
+                .doOnNext(results -> log.info("Batch of {} users processed", users.size()));
+    }
+
+    public Mono<List<BatchItemResult>> addFriends(List<Friendship> friendships) {
+        return Flux.fromIterable(friendships)
+                .concatMap(friendship -> {
+                    String error = BatchSupport.validationError(validator, friendship);
+                    if (error != null) {
+                        return Mono.just(BatchItemResult.failed(error));
+                    }
+                    return addFriend(friendship.getUserId(), friendship.getFriendId())
+                            .thenReturn(BatchItemResult.ok(null))
+                            .onErrorResume(e -> e instanceof NotFoundException || e instanceof AlreadyExistException,
+                                    e -> Mono.just(BatchItemResult.failed(e.getMessage())));
+                })
+                .collectList()
+                .doOnNext(results -> log.info("Batch of {} friendships processed", friendships.size()));
+    }
+
+    public Mono<Void> addFriend(int userId, int friendId) {
+        return checkUserExist(userId)
+                .then(checkUserExist(friendId))
+                .then(friendDao.addFriend(userId, friendId))
+                .flatMap(added -> added ? Mono.<Void>empty() : Mono.error(new AlreadyExistException(String.format(
+                        "User with ID = %d is ALREADY friends with user with ID = %d", friendId, userId))))
+                .doOnSuccess(ignored ->
+                        log.info("User with ID = {} ADDED user with ID = {} as a friend", userId, friendId));
+    }
+
+    public Mono<Void> deleteFriend(int userId, int friendId) {
+        return checkUserExist(userId)
+                .then(checkUserExist(friendId))
+                .then(friendDao.deleteFriend(userId, friendId))
+                .flatMap(deleted -> deleted ? Mono.<Void>empty() : Mono.error(new NotFoundException(
+                        String.format("Deleted user with ID = %d was NOT FOUND in friends", friendId))))
+                .doOnSuccess(ignored ->
+                        log.info("User with ID = {} REMOVED from friends of user with ID = {}", friendId, userId));
+    }
+
+    public Mono<Void> checkUserExist(int id) {
+        return userStorage.exists(id)
+                .flatMap(exists -> exists ? Mono.<Void>empty() : Mono.error(
+                        new NotFoundException(String.format("User ID = %d does not exist", id))));
+    }
+
+    public Mono<User> getUser(int id) {
+        log.info("Get a user with ID = {}", id);
+        return userStorage.getById(id);
+    }
+
+    public Flux<User> getUsers() {
+        return userStorage.getUsers();
+    }
+
+    public Mono<Page<User>> getUsersPage(String after, Integer limit) {
+        return Mono.fromCallable(() -> {
+                    Page.checkLimit(limit);
+                    return Page.decodeCursor(after);
+                })
+                .doOnNext(afterId -> log.info("Get page of {} users after ID = {}", limit, afterId))
+                .flatMap(afterId -> userStorage.getUsersPage(afterId, limit + 1).collectList())
+                .map(rows -> Page.of(rows, limit, User::getId));
+    }
+
+    public Flux<User> getUserFriends(int id) {
+        log.info("Get friends of the user with ID= {}", id);
+        return checkUserExist(id).thenMany(friendDao.getAllFriends(id));
+    }
+
+    public Flux<User> getCommonFriends(int userId, int friendId) {
+        log.info("Get common friends of users with ID = {} and ID = {}", userId, friendId);
+        return checkUserExist(userId)
+                .then(checkUserExist(friendId))
+                .thenMany(friendDao.getCommonFriends(userId, friendId));
+    }
+
+    public Flux<User> getFriendSuggestions(int id, Integer limit) {
+        log.info("Get {} friend suggestions for the user with ID = {}", limit, id);
+        return Mono.fromRunnable(() -> Page.checkLimit(limit))
+                .then(checkUserExist(id))
+                .thenMany(friendDao.getFriendSuggestions(id, limit));
+    }
+}
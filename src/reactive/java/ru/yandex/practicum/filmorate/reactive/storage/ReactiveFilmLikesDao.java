@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.reactive.storage;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactiveFilmLikesDao {
+    /**
+     * Добавляет лайк и увеличивает счётчик лайков фильма.
+     *
+     * @return false, если лайк уже был
+     */
+    Mono<Boolean> like(int filmId, int userId);
+
+    /**
+     * @return false, если лайка не было
+     */
+    Mono<Boolean> unlike(int filmId, int userId);
+}
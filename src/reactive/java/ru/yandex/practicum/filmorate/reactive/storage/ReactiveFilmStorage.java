@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.reactive.storage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Фильмы в реактивном хранилище. Жанры фильмов загружает {@link ReactiveGenreDao}.
+ */
+public interface ReactiveFilmStorage {
+    Mono<Film> createFilm(Film film);
+
+    /**
+     * @return NotFoundException, если фильма нет
+     */
+    Mono<Film> updateFilm(Film film);
+
+    Mono<Film> getById(int id);
+
+    Mono<Boolean> exists(int id);
+
+    Flux<Film> getFilms();
+
+    Flux<Film> getFilmsPage(int afterId, int limit);
+
+    Flux<Film> getTopFilms(int count);
+
+    /**
+     * Фильмы, которые лайкали пользователи с общими лайками, кроме уже лайкнутых:
+     * вес — число совместных лайков со всеми фильмами пользователя.
+     */
+    Flux<Film> getRecommendations(int userId, int limit);
+}
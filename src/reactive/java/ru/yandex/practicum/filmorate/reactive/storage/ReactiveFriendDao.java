@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.reactive.storage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+
+public interface ReactiveFriendDao {
+    /**
+     * @return false, если пользователи уже друзья
+     */
+    Mono<Boolean> addFriend(int userId, int friendId);
+
+    /**
+     * @return false, если пользователи не были друзьями
+     */
+    Mono<Boolean> deleteFriend(int userId, int friendId);
+
+    Flux<User> getAllFriends(int userId);
+
+    Flux<User> getCommonFriends(int userId, int otherId);
+
+    /**
+     * Друзья друзей по убыванию числа общих друзей, при равенстве — по возрастанию id.
+     */
+    Flux<User> getFriendSuggestions(int userId, int limit);
+}
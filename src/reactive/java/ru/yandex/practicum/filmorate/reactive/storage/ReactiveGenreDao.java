@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.reactive.storage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ReactiveGenreDao {
+    Mono<Genre> getGenre(int id);
+
+    Flux<Genre> getAllGenres();
+
+    /**
+     * Заменяет жанры фильма на переданные.
+     */
+    Mono<Void> setFilmGenres(int filmId, Collection<Integer> genreIds);
+
+    /**
+     * Заполняет жанры фильмов одним запросом.
+     */
+    Mono<List<Film>> loadGenres(List<Film> films);
+}
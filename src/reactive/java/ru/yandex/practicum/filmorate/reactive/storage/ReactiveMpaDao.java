@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.reactive.storage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+public interface ReactiveMpaDao {
+    Mono<Mpa> getMpa(int id);
+
+    Flux<Mpa> getAllMpa();
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.reactive.storage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+
+public interface ReactiveUserStorage {
+    Mono<User> createUser(User user);
+
+    /**
+     * @return NotFoundException, если пользователя нет
+     */
+    Mono<User> updateUser(User user);
+
+    Mono<User> getById(int id);
+
+    Mono<Boolean> exists(int id);
+
+    Flux<User> getUsers();
+
+    Flux<User> getUsersPage(int afterId, int limit);
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.reactive.storage.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveFilmLikesDao;
+
+/**
+ * Счётчик films.likes_count меняется вместе со строкой film_likes, поэтому методы
+ * вызываются в транзакции сервиса.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class R2dbcFilmLikesDao implements ReactiveFilmLikesDao {
+    private final DatabaseClient client;
+
+    @Override
+    public Mono<Boolean> like(int filmId, int userId) {
+        return client.sql("INSERT INTO film_likes (film_id, user_id) " +
+                        "SELECT CAST(:filmId AS INTEGER), CAST(:userId AS INTEGER) FROM DUAL " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = :filmId AND user_id = :userId)")
+                .bind("filmId", filmId)
+                .bind("userId", userId)
+                .fetch().rowsUpdated()
+                .flatMap(inserted -> inserted == 0 ? Mono.just(false) : changeLikesCount(filmId, 1));
+    }
+
+    @Override
+    public Mono<Boolean> unlike(int filmId, int userId) {
+        return client.sql("DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId")
+                .bind("filmId", filmId)
+                .bind("userId", userId)
+                .fetch().rowsUpdated()
+                .flatMap(deleted -> deleted == 0 ? Mono.just(false) : changeLikesCount(filmId, -1));
+    }
+
+    private Mono<Boolean> changeLikesCount(int filmId, int delta) {
+        return client.sql("UPDATE films SET likes_count = likes_count + :delta WHERE id = :filmId")
+                .bind("delta", delta)
+                .bind("filmId", filmId)
+                .fetch().rowsUpdated()
+                .thenReturn(true);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.reactive.storage.impl;
+
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveFilmStorage;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveGenreDao;
+
+import java.time.LocalDate;
+
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class R2dbcFilmStorage implements ReactiveFilmStorage {
+    private static final String FILMS_QUERY = "SELECT f.*, m.name AS mpa_name FROM films AS f " +
+            "JOIN mpa AS m ON m.mpa_id = f.mpa_id ";
+    private final DatabaseClient client;
+    private final ReactiveGenreDao genreDao;
+
+    @Override
+    public Mono<Film> createFilm(Film film) {
+        String sqlQuery = "INSERT INTO films (name, description, duration, releaseDate, mpa_id) " +
+                "VALUES (:name, :description, :duration, :releaseDate, :mpaId)";
+        return bindFilm(client.sql(sqlQuery), film)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .map(id -> {
+                    film.setId(id);
+                    return film;
+                });
+    }
+
+    @Override
+    public Mono<Film> updateFilm(Film film) {
+        String sqlQuery = "UPDATE films SET name = :name, description = :description, duration = :duration, " +
+                "releaseDate = :releaseDate, mpa_id = :mpaId WHERE id = :id";
+        return bindFilm(client.sql(sqlQuery), film)
+                .bind("id", film.getId())
+                .fetch().rowsUpdated()
+                .flatMap(updated -> updated == 0
+                        ? Mono.error(new NotFoundException(String.format("Film ID = %d does not exist", film.getId())))
+                        : Mono.just(film));
+    }
+
+    @Override
+    public Mono<Film> getById(int id) {
+        return withGenres(client.sql(FILMS_QUERY + "WHERE f.id = :id")
+                .bind("id", id)
+                .map(this::mapRowToFilm)
+                .all())
+                .next()
+                .switchIfEmpty(Mono.error(() ->
+                        new NotFoundException(String.format("Film ID = %d does not exist", id))));
+    }
+
+    @Override
+    public Mono<Boolean> exists(int id) {
+        return client.sql("SELECT 1 FROM films WHERE id = :id")
+                .bind("id", id)
+                .map(row -> Boolean.TRUE)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    @Override
+    public Flux<Film> getFilms() {
+        return withGenres(client.sql(FILMS_QUERY + "ORDER BY f.id")
+                .map(this::mapRowToFilm)
+                .all());
+    }
+
+    @Override
+    public Flux<Film> getFilmsPage(int afterId, int limit) {
+        return withGenres(client.sql(FILMS_QUERY + "WHERE f.id > :afterId ORDER BY f.id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(this::mapRowToFilm)
+                .all());
+    }
+
+    @Override
+    public Flux<Film> getTopFilms(int count) {
+        return withGenres(client.sql(FILMS_QUERY + "ORDER BY f.likes_count DESC, f.id LIMIT :count")
+                .bind("count", count)
+                .map(this::mapRowToFilm)
+                .all());
+    }
+
+    @Override
+    public Flux<Film> getRecommendations(int userId, int limit) {
+        String sqlQuery = "SELECT f.*, m.name AS mpa_name FROM (" +
+                "SELECT other.film_id, COUNT(*) AS score FROM film_likes AS mine " +
+                "JOIN film_likes AS peer ON peer.film_id = mine.film_id AND peer.user_id <> mine.user_id " +
+                "JOIN film_likes AS other ON other.user_id = peer.user_id " +
+                "WHERE mine.user_id = :userId " +
+                "AND other.film_id NOT IN (SELECT film_id FROM film_likes WHERE user_id = :userId) " +
+                "GROUP BY other.film_id) AS r " +
+                "JOIN films AS f ON f.id = r.film_id " +
+                "JOIN mpa AS m ON m.mpa_id = f.mpa_id " +
+                "ORDER BY r.score DESC, f.id LIMIT :limit";
+        return withGenres(client.sql(sqlQuery)
+                .bind("userId", userId)
+                .bind("limit", limit)
+                .map(this::mapRowToFilm)
+                .all());
+    }
+
+    private Flux<Film> withGenres(Flux<Film> films) {
+        return films.collectList()
+                .flatMap(genreDao::loadGenres)
+                .flatMapIterable(list -> list);
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindFilm(DatabaseClient.GenericExecuteSpec spec, Film film) {
+        spec = spec.bind("name", film.getName())
+                .bind("duration", film.getDuration())
+                .bind("mpaId", film.getMpa().getId());
+        spec = film.getDescription() == null
+                ? spec.bindNull("description", String.class) : spec.bind("description", film.getDescription());
+        return film.getReleaseDate() == null
+                ? spec.bindNull("releaseDate", LocalDate.class) : spec.bind("releaseDate", film.getReleaseDate());
+    }
+
+    private Film mapRowToFilm(Row row) {
+        return Film.builder()
+                .id(row.get("id", Integer.class))
+                .name(row.get("name", String.class))
+                .description(row.get("description", String.class))
+                .duration(row.get("duration", Integer.class))
+                .releaseDate(row.get("releaseDate", LocalDate.class))
+                .mpa(new Mpa(row.get("mpa_id", Integer.class), row.get("mpa_name", String.class)))
+                .build();
+    }
+}
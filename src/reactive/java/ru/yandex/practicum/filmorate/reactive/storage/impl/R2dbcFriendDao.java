@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.reactive.storage.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveFriendDao;
+
+/**
+ * Дружба односторонняя: строка (user_id, friend_user_id) означает, что user_id добавил friend_user_id.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class R2dbcFriendDao implements ReactiveFriendDao {
+    private final DatabaseClient client;
+
+    @Override
+    public Mono<Boolean> addFriend(int userId, int friendId) {
+        return client.sql("INSERT INTO friendship (user_id, friend_user_id) " +
+                        "SELECT CAST(:userId AS INTEGER), CAST(:friendId AS INTEGER) FROM DUAL " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM friendship " +
+                        "WHERE user_id = :userId AND friend_user_id = :friendId)")
+                .bind("userId", userId)
+                .bind("friendId", friendId)
+                .fetch().rowsUpdated()
+                .map(inserted -> inserted > 0);
+    }
+
+    @Override
+    public Mono<Boolean> deleteFriend(int userId, int friendId) {
+        return client.sql("DELETE FROM friendship WHERE user_id = :userId AND friend_user_id = :friendId")
+                .bind("userId", userId)
+                .bind("friendId", friendId)
+                .fetch().rowsUpdated()
+                .map(deleted -> deleted > 0);
+    }
+
+    @Override
+    public Flux<User> getAllFriends(int userId) {
+        return client.sql("SELECT u.* FROM friendship AS f JOIN users AS u ON u.id = f.friend_user_id " +
+                        "WHERE f.user_id = :userId ORDER BY u.id")
+                .bind("userId", userId)
+                .map(R2dbcUserStorage::mapRowToUser)
+                .all();
+    }
+
+    @Override
+    public Flux<User> getCommonFriends(int userId, int otherId) {
+        return client.sql("SELECT u.* FROM friendship AS a " +
+                        "JOIN friendship AS b ON b.friend_user_id = a.friend_user_id AND b.user_id = :otherId " +
+                        "JOIN users AS u ON u.id = a.friend_user_id " +
+                        "WHERE a.user_id = :userId ORDER BY u.id")
+                .bind("userId", userId)
+                .bind("otherId", otherId)
+                .map(R2dbcUserStorage::mapRowToUser)
+                .all();
+    }
+
+    @Override
+    public Flux<User> getFriendSuggestions(int userId, int limit) {
+        String sqlQuery = "SELECT u.* FROM (" +
+                "SELECT ff.friend_user_id AS id, COUNT(*) AS mutual FROM friendship AS f " +
+                "JOIN friendship AS ff ON ff.user_id = f.friend_user_id " +
+                "WHERE f.user_id = :userId AND ff.friend_user_id <> :userId " +
+                "AND ff.friend_user_id NOT IN (SELECT friend_user_id FROM friendship WHERE user_id = :userId) " +
+                "GROUP BY ff.friend_user_id) AS s " +
+                "JOIN users AS u ON u.id = s.id " +
+                "ORDER BY s.mutual DESC, u.id LIMIT :limit";
+        return client.sql(sqlQuery)
+                .bind("userId", userId)
+                .bind("limit", limit)
+                .map(R2dbcUserStorage::mapRowToUser)
+                .all();
+    }
+}
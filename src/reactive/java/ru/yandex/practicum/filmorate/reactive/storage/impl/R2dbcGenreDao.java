@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.reactive.storage.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveGenreDao;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class R2dbcGenreDao implements ReactiveGenreDao {
+    private final DatabaseClient client;
+
+    @Override
+    public Mono<Genre> getGenre(int id) {
+        return client.sql("SELECT genre_id, name FROM genres WHERE genre_id = :id")
+                .bind("id", id)
+                .map(row -> new Genre(row.get("genre_id", Integer.class), row.get("name", String.class)))
+                .one()
+                .switchIfEmpty(Mono.error(() ->
+                        new NotFoundException(String.format("Genre ID = %d does not exist", id))));
+    }
+
+    @Override
+    public Flux<Genre> getAllGenres() {
+        return client.sql("SELECT genre_id, name FROM genres ORDER BY genre_id")
+                .map(row -> new Genre(row.get("genre_id", Integer.class), row.get("name", String.class)))
+                .all();
+    }
+
+    @Override
+    public Mono<Void> setFilmGenres(int filmId, Collection<Integer> genreIds) {
+        Mono<Integer> deleted = client.sql("DELETE FROM film_genres WHERE film_id = :filmId")
+                .bind("filmId", filmId)
+                .fetch().rowsUpdated();
+        return deleted.thenMany(Flux.fromIterable(genreIds)
+                        .concatMap(genreId -> client.sql(
+                                        "INSERT INTO film_genres (film_id, genre_id) VALUES (:filmId, :genreId)")
+                                .bind("filmId", filmId)
+                                .bind("genreId", genreId)
+                                .fetch().rowsUpdated()))
+                .then();
+    }
+
+    @Override
+    public Mono<List<Film>> loadGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return Mono.just(films);
+        }
+        Map<Integer, Film> filmsById = films.stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        filmsById.values().forEach(film -> film.setGenres(new LinkedHashSet<>()));
+        return client.sql("SELECT fg.film_id, g.genre_id, g.name FROM film_genres AS fg " +
+                        "JOIN genres AS g ON g.genre_id = fg.genre_id " +
+                        "WHERE fg.film_id IN (:filmIds) ORDER BY fg.film_id, g.genre_id")
+                .bind("filmIds", filmsById.keySet())
+                .map(row -> {
+                    filmsById.get(row.get("film_id", Integer.class)).getGenres().add(
+                            new Genre(row.get("genre_id", Integer.class), row.get("name", String.class)));
+                    return Boolean.TRUE;
+                })
+                .all()
+                .then(Mono.just(films));
+    }
+}
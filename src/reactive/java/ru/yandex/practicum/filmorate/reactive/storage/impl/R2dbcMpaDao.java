@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.reactive.storage.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveMpaDao;
+
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class R2dbcMpaDao implements ReactiveMpaDao {
+    private final DatabaseClient client;
+
+    @Override
+    public Mono<Mpa> getMpa(int id) {
+        return client.sql("SELECT mpa_id, name FROM mpa WHERE mpa_id = :id")
+                .bind("id", id)
+                .map(row -> new Mpa(row.get("mpa_id", Integer.class), row.get("name", String.class)))
+                .one()
+                .switchIfEmpty(Mono.error(() ->
+                        new NotFoundException(String.format("MPA with ID = %d does not exist", id))));
+    }
+
+    @Override
+    public Flux<Mpa> getAllMpa() {
+        return client.sql("SELECT mpa_id, name FROM mpa ORDER BY mpa_id")
+                .map(row -> new Mpa(row.get("mpa_id", Integer.class), row.get("name", String.class)))
+                .all();
+    }
+}
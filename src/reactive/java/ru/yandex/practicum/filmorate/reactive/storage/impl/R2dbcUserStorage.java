@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.reactive.storage.impl;
+
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.reactive.storage.ReactiveUserStorage;
+
+import java.time.LocalDate;
+
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class R2dbcUserStorage implements ReactiveUserStorage {
+    private final DatabaseClient client;
+
+    @Override
+    public Mono<User> createUser(User user) {
+        return client.sql("INSERT INTO users (email, login, name, birthday) " +
+                        "VALUES (:email, :login, :name, :birthday)")
+                .bind("email", user.getEmail())
+                .bind("login", user.getLogin())
+                .bind("name", user.getName())
+                .bind("birthday", user.getBirthday())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .map(id -> {
+                    user.setId(id);
+                    return user;
+                });
+    }
+
+    @Override
+    public Mono<User> updateUser(User user) {
+        return client.sql("UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday " +
+                        "WHERE id = :id")
+                .bind("email", user.getEmail())
+                .bind("login", user.getLogin())
+                .bind("name", user.getName())
+                .bind("birthday", user.getBirthday())
+                .bind("id", user.getId())
+                .fetch().rowsUpdated()
+                .flatMap(updated -> updated == 0
+                        ? Mono.error(new NotFoundException(String.format("User ID = %d does not exist", user.getId())))
+                        : Mono.just(user));
+    }
+
+    @Override
+    public Mono<User> getById(int id) {
+        return client.sql("SELECT * FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(R2dbcUserStorage::mapRowToUser)
+                .one()
+                .switchIfEmpty(Mono.error(() ->
+                        new NotFoundException(String.format("User ID = %d does not exist", id))));
+    }
+
+    @Override
+    public Mono<Boolean> exists(int id) {
+        return client.sql("SELECT 1 FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(row -> Boolean.TRUE)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    @Override
+    public Flux<User> getUsers() {
+        return client.sql("SELECT * FROM users ORDER BY id")
+                .map(R2dbcUserStorage::mapRowToUser)
+                .all();
+    }
+
+    @Override
+    public Flux<User> getUsersPage(int afterId, int limit) {
+        return client.sql("SELECT * FROM users WHERE id > :afterId ORDER BY id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(R2dbcUserStorage::mapRowToUser)
+                .all();
+    }
+
+    static User mapRowToUser(Row row) {
+        return User.builder()
+                .id(row.get("id", Integer.class))
+                .email(row.get("email", String.class))
+                .login(row.get("login", String.class))
+                .name(row.get("name", String.class))
+                .birthday(row.get("birthday", LocalDate.class))
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+
+@SpringBootTest(classes = ReactiveFilmorateApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.main.web-application-type=reactive",
+                "spring.r2dbc.url=r2dbc:h2:mem:///reactive-test;DB_CLOSE_DELAY=-1"})
+@ActiveProfiles("reactive")
+class ReactiveFilmorateApplicationTest {
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void shouldServeFilmAndUserRoutes() {
+        for (String login : new String[]{"first", "second"}) {
+            client.post().uri("/users")
+                    .bodyValue(Map.of("email", login + "@mail.ru", "login", login, "birthday", "1990-01-01"))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody().jsonPath("$.name").isEqualTo(login);
+        }
+        for (String name : new String[]{"film1", "film2"}) {
+            client.post().uri("/films")
+                    .bodyValue(Map.of("name", name, "description", "description", "duration", 100,
+                            "releaseDate", "2000-01-01", "mpa", Map.of("id", 1),
+                            "genres", new Object[]{Map.of("id", 2), Map.of("id", 1), Map.of("id", 2)}))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.mpa.name").isEqualTo("G")
+                    .jsonPath("$.genres.length()").isEqualTo(2)
+                    .jsonPath("$.genres[0].id").isEqualTo(1);
+        }
+
+        client.put().uri("/films/2/like/1").exchange().expectStatus().isOk();
+        client.put().uri("/films/2/like/1").exchange().expectStatus().isBadRequest();
+        client.put().uri("/films/1/like/2").exchange().expectStatus().isOk();
+        client.put().uri("/films/2/like/2").exchange().expectStatus().isOk();
+
+        client.get().uri("/films/popular?count=1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].id").isEqualTo(2);
+        client.get().uri("/users/1/recommendations").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].id").isEqualTo(1);
+        client.get().uri("/films?limit=1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo(1)
+                .jsonPath("$.nextCursor").isNotEmpty();
+        client.get().uri("/films/99").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.error").isEqualTo("Film ID = 99 does not exist");
+        client.post().uri("/users")
+                .bodyValue(Map.of("email", "wrong", "login", "third", "birthday", "1990-01-01"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
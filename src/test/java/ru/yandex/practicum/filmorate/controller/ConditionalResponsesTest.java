@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConditionalResponsesTest {
+    private static final String ETAG = "\"film-1-abc-2\"";
+
+    @Test
+    void shouldMatchIfNoneMatchList() {
+        assertTrue(ConditionalResponses.matches("\"other\", W/" + ETAG, ETAG));
+        assertFalse(ConditionalResponses.matches("*", ETAG));
+        assertFalse(ConditionalResponses.matches("\"film-1-abc-1\"", ETAG));
+        assertFalse(ConditionalResponses.matches(null, ETAG));
+    }
+
+    @Test
+    void shouldNotLoadBodyWhenNotModified() {
+        ResponseEntity<String> response = ConditionalResponses.ifNoneMatch(ETAG, ETAG,
+                ConditionalResponses.REVALIDATE, () -> {
+                    throw new AssertionError("body must not be loaded");
+                });
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(ETAG, response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void shouldMatchAnyOnlyExistingEntity() {
+        ResponseEntity<String> response = ConditionalResponses.ifNoneMatch("*", ETAG,
+                ConditionalResponses.REVALIDATE, () -> "film");
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+
+        assertThrows(NotFoundException.class, () -> ConditionalResponses.ifNoneMatch("*", ETAG,
+                ConditionalResponses.REVALIDATE, () -> {
+                    throw new NotFoundException("Film ID = 1 does not exist");
+                }));
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@DirtiesContext
+class ExportControllerMvcTest {
+    // больше filmorate.export.fetch-size, чтобы выгрузка прошла несколько порций чтения
+    private static final int FILMS = 2500;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        // контекст и база общие для всех тестов класса — данные заполняются один раз
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films WHERE name = 'Export film 1'", Integer.class) > 0) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO films (name, description, duration, releaseDate, mpa_id) " +
+                "SELECT CONCAT('Export film ', x), 'Description', 90, DATE '2000-01-01', 1 " +
+                "FROM SYSTEM_RANGE(1, ?)", FILMS);
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+                "SELECT CONCAT('export', x, '@mail.ru'), CONCAT('export', x), 'User', DATE '1990-01-01' " +
+                "FROM SYSTEM_RANGE(1, 3)");
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) SELECT f.id, u.id FROM films AS f, users AS u " +
+                "WHERE f.name IN ('Export film 1', 'Export film 2500') AND u.login LIKE 'export%'");
+    }
+
+    @Test
+    void shouldStreamEveryFilmAsOneJsonLine() throws Exception {
+        List<JsonNode> rows = ndjson("/export/films.ndjson");
+
+        List<Integer> ids = new ArrayList<>();
+        rows.forEach(row -> ids.add(row.get("id").asInt()));
+        assertEquals(jdbcTemplate.queryForList("SELECT id FROM films ORDER BY id", Integer.class), ids);
+        assertTrue(rows.size() >= FILMS);
+    }
+
+    @Test
+    void shouldStreamEveryLikeAsOneJsonLine() throws Exception {
+        List<JsonNode> rows = ndjson("/export/likes.ndjson");
+
+        List<String> likes = new ArrayList<>();
+        rows.forEach(row -> likes.add(row.get("filmId").asInt() + ":" + row.get("userId").asInt()));
+        assertEquals(jdbcTemplate.queryForList("SELECT CONCAT(film_id, ':', user_id) FROM film_likes " +
+                "ORDER BY film_id, user_id", String.class), likes);
+        assertTrue(rows.size() >= 6);
+    }
+
+    /**
+     * Проверяет тип ответа и разбивку на строки: каждая строка, включая последнюю, заканчивается
+     * переводом строки и содержит ровно один JSON-объект.
+     */
+    private List<JsonNode> ndjson(String url) throws Exception {
+        String body = perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("\n"), "The last line must end with a line feed");
+
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : body.substring(0, body.length() - 1).split("\n", -1)) {
+            JsonNode row = objectMapper.readTree(line);
+            assertTrue(row.isObject(), "Not a JSON object: " + line);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.yandex.practicum.filmorate.metrics.JdbcStatementMetricsFilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class FilmControllerMvcTest {
+    private static final String FILM = "{\"name\":\"%s\",\"description\":\"Description\",\"duration\":90," +
+            "\"releaseDate\":\"2000-01-01\",\"mpa\":{\"id\":1}}";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void shouldRejectYearsOutOfRange() throws Exception {
+        perform(get("/films").param("yearFrom", "1000000000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("yearFrom must be between 1 and 9999"));
+        perform(get("/films").param("yearTo", "2147483647"))
+                .andExpect(status().isBadRequest());
+        perform(get("/films").param("yearFrom", "0"))
+                .andExpect(status().isBadRequest());
+        perform(get("/films").param("yearFrom", "1").param("yearTo", "9999"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldRejectInvalidPageCursor() throws Exception {
+        perform(get("/films").param("after", "not a cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid page cursor: not a cursor"));
+    }
+
+    @Test
+    void shouldMatchAnyETagOnlyForExistingFilm() throws Exception {
+        perform(get("/films/{id}", 999).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+
+        String film = String.format(FILM, "Film");
+        int id = JsonPath.read(perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(film))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        perform(get("/films/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldCountJdbcStatementsOfAsyncRequest() throws Exception {
+        DistributionSummary summary = registry.summary("filmorate.jdbc.statements", "method", "POST", "uri", "/films");
+        long count = summary.count();
+        double total = summary.totalAmount();
+
+        String header = perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                .content(String.format(FILM, "Counted film")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(JdbcStatementMetricsFilter.HEADER);
+
+        // запросы выполняются в пуле JdbcExecutor, но попадают в счётчик HTTP-запроса
+        int statements = Integer.parseInt(header);
+        assertTrue(statements > 0, "Statements of the DAO thread must be counted");
+        assertEquals(count + 1, summary.count());
+        assertEquals(total + statements, summary.totalAmount());
+    }
+
+    /**
+     * Контроллеры отвечают CompletableFuture: ответ забирается повторной асинхронной обработкой.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactIntSetTest {
+    @Test
+    void shouldKeepSortedUniqueValues() {
+        CompactIntSet set = new CompactIntSet(5, 1, 3);
+
+        assertTrue(set.add(2));
+        assertFalse(set.add(3));
+        assertTrue(set.remove(1));
+        assertFalse(set.remove(1));
+        assertArrayEquals(new int[]{2, 3, 5}, set.toIntArray());
+        assertEquals(Set.of(2, 3, 5), set);
+    }
+
+    @Test
+    void shouldSwitchBetweenArrayAndBitmap() {
+        CompactIntSet set = new CompactIntSet();
+        IntStream.rangeClosed(1, 1000).forEach(set::add);
+        assertTrue(set.contains(500));
+        assertFalse(set.contains(1001));
+
+        assertTrue(set.add(2_000_000_000));
+        assertTrue(set.add(-7));
+        assertEquals(1002, set.size());
+
+        IntStream.rangeClosed(1, 1000).filter(i -> i % 100 != 0).forEach(set::remove);
+        assertArrayEquals(new int[]{-7, 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000, 2_000_000_000},
+                set.toIntArray());
+    }
+
+    @Test
+    void shouldSerializeLikeSetOfNumbers() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Film film = mapper.readValue("{\"name\":\"film\",\"likes\":[3,1,2]}", Film.class);
+
+        assertArrayEquals(new int[]{1, 2, 3}, film.getLikes().toIntArray());
+        assertTrue(mapper.writeValueAsString(film).contains("\"likes\":[1,2,3]"));
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class EntityVersionsTest {
+    // ответы GET: ETag и имя фильма; GET читает ETag до тела, как FilmController
+    private final List<String[]> responses = new ArrayList<>();
+    private String storedName = "old";
+    private EntityVersions versions;
+
+    private final EntityCache cache = new EntityCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1)) {
+        @Override
+        public void invalidateFilm(int id) {
+            get();
+            super.invalidateFilm(id);
+            get();
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldNotServeCachedBodyWithNewETag() {
+        versions = new EntityVersions(cache);
+        get();
+
+        TransactionSynchronizationManager.initSynchronization();
+        versions.filmUpdated(1);
+        storedName = "new";
+        get();
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        get();
+
+        String oldETag = responses.get(0)[0];
+        String newETag = versions.filmETag(1);
+        assertNotEquals(oldETag, newETag);
+        for (String[] response : responses) {
+            if (response[0].equals(newETag)) {
+                // старое тело с новым ETag закрепилось бы у клиента ответами 304
+                assertEquals("new", response[1]);
+            }
+        }
+        assertEquals("new", responses.get(responses.size() - 1)[1]);
+    }
+
+    private void get() {
+        String etag = versions.filmETag(1);
+        String body = cache.film(1, id -> Film.builder().id(id).name(storedName).build()).getName();
+        responses.add(new String[]{etag, body});
+    }
+}
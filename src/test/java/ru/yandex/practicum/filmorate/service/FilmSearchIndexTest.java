@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmSearchIndexTest {
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FilmSearchIndex();
+        index.put(1, "Ёлки", "Новогодняя комедия");
+        index.put(2, "Матрица", "Хакер узнаёт, что мир — симуляция");
+        index.put(3, "The Matrix Reloaded", "Neo and the matrix again");
+        index.put(4, "Ирония судьбы", "Комедия про баню и новогоднюю ночь");
+    }
+
+    @Test
+    void shouldRankByBm25WithNameWeight() {
+        assertEquals(List.of(3), index.search("MATRIX", 10));
+        assertEquals(List.of(1, 4), index.search("комедия", 10));
+        assertEquals(List.of(1), index.search("елки", 10));
+        assertEquals(List.of(4, 1), index.search("новогоднюю комедия баню", 10));
+        assertEquals(List.of(4), index.search("новогоднюю комедия баню", 1));
+        assertEquals(List.of(), index.search("  ,.", 10));
+    }
+
+    @Test
+    void shouldReplaceFilmOnUpdate() {
+        index.put(2, "Matrix", "Хакер");
+
+        assertEquals(List.of(2, 3), index.search("matrix", 10));
+        assertEquals(List.of(), index.search("симуляция", 10));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void shouldKeepResultsAfterCompaction() {
+        for (int i = 0; i < 3000; i++) {
+            index.put(2, "Матрица " + i, "симуляция");
+        }
+
+        assertEquals(List.of(2), index.search("симуляция", 10));
+        assertEquals(List.of(2), index.search("2999", 10));
+        assertEquals(List.of(), index.search("1000", 10));
+        assertEquals(List.of(1, 4), index.search("комедия", 10));
+    }
+}
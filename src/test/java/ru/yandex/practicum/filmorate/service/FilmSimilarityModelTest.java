@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilmSimilarityModelTest {
+    private FilmSimilarityModel model;
+
+    @BeforeEach
+    void setUp() {
+        model = new FilmSimilarityModel(2);
+        model.load(1, 10);
+        model.load(2, 10);
+        model.load(3, 10);
+        model.load(1, 11);
+        model.load(2, 11);
+        model.load(4, 12);
+        model.rebuild();
+    }
+
+    @Test
+    void shouldRecommendFilmsLikedTogether() {
+        model.like(1, 12);
+
+        assertEquals(List.of(2, 3), model.recommend(12, 10));
+        assertEquals(List.of(2), model.recommend(12, 1));
+        assertEquals(List.of(3), model.recommend(11, 10));
+        assertTrue(model.recommend(99, 10).isEmpty());
+    }
+
+    @Test
+    void shouldUpdateNeighboursOnLikeAndUnlike() {
+        model.like(4, 11);
+        assertEquals(List.of(1, 2), model.recommend(12, 10));
+
+        model.unlike(4, 11);
+        assertTrue(model.recommend(12, 10).isEmpty());
+
+        model.unlike(3, 10);
+        assertTrue(model.recommend(11, 10).isEmpty());
+    }
+
+    @Test
+    void shouldReturnNeighbourToTopAfterUnlike() {
+        model.like(4, 10);
+        model.like(1, 13);
+        assertEquals(List.of(2, 3), model.recommend(13, 10));
+
+        model.unlike(2, 10);
+        model.unlike(2, 11);
+        assertEquals(List.of(3, 4), model.recommend(13, 10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    void shouldMatchRebuildAfterRandomLikesAndUnlikes(int neighboursLimit) {
+        FilmSimilarityModel incremental = new FilmSimilarityModel(neighboursLimit);
+        Set<List<Integer>> likes = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            int filmId = random.nextInt(30);
+            int userId = random.nextInt(40);
+            if (random.nextInt(3) == 0) {
+                assertEquals(likes.remove(List.of(filmId, userId)), incremental.unlike(filmId, userId));
+            } else {
+                assertEquals(likes.add(List.of(filmId, userId)), incremental.like(filmId, userId));
+            }
+        }
+        FilmSimilarityModel rebuilt = new FilmSimilarityModel(neighboursLimit);
+        likes.forEach(like -> rebuilt.load(like.get(0), like.get(1)));
+        rebuilt.rebuild();
+
+        for (int userId = 0; userId < 40; userId++) {
+            assertEquals(rebuilt.recommend(userId, 10), incremental.recommend(userId, 10));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JdbcExecutorTest {
+    @Test
+    void shouldRejectWhenPoolAndQueueAreFull() throws Exception {
+        JdbcExecutor executor = new JdbcExecutor("bounded", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = executor.run(() -> await(release));
+        CompletableFuture<String> queued = executor.supply(() -> "queued");
+
+        assertThrows(RejectedExecutionException.class, () -> executor.supply(() -> "rejected"));
+        release.countDown();
+        running.join();
+        assertEquals("queued", queued.join());
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldRunInCallingThreadInDirectMode() {
+        JdbcExecutor executor = new JdbcExecutor("direct", 1, 1);
+        Thread caller = Thread.currentThread();
+
+        assertEquals(caller, executor.supply(Thread::currentThread).join());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PopularityLeaderboardTest {
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new PopularityLeaderboard();
+        leaderboard.put(1, 0);
+        leaderboard.put(2, 3);
+        leaderboard.put(3, 1);
+    }
+
+    @Test
+    void shouldGetTopByLikesThenById() {
+        leaderboard.put(4, 1);
+
+        assertEquals(List.of(2, 3, 4, 1), leaderboard.top(10));
+        assertEquals(List.of(2, 3), leaderboard.top(2));
+    }
+
+    @Test
+    void shouldMoveFilmOnLikeAndUnlike() {
+        leaderboard.increment(1);
+        leaderboard.increment(1);
+        assertEquals(List.of(2, 1, 3), leaderboard.top(3));
+
+        leaderboard.decrement(2);
+        leaderboard.decrement(2);
+        assertEquals(List.of(1, 2, 3), leaderboard.top(3));
+    }
+
+    @Test
+    void shouldReplaceLikesCountOnPut() {
+        leaderboard.put(2, 0);
+        leaderboard.put(1, 2);
+
+        assertEquals(List.of(1, 3, 2), leaderboard.top(10));
+    }
+
+    @Test
+    void shouldNotGoBelowZeroLikes() {
+        leaderboard.decrement(1);
+        leaderboard.increment(1);
+
+        assertEquals(List.of(2, 1, 3), leaderboard.top(3));
+    }
+}
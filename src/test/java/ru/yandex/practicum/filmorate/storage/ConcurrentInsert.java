@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Воспроизводит гонку вставок для тестов: параллельная транзакция вставляет строку и держит её
+ * незафиксированной, пока проверяемое действие не заблокируется на ней, после чего фиксируется.
+ * Проверка NOT EXISTS действия такую строку не видит, а его вставка упирается в первичный ключ.
+ */
+public class ConcurrentInsert {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ConcurrentInsert(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return исключение, с которым завершилось действие, или null, если оно завершилось успешно
+     */
+    public Throwable run(String insertSql, Object[] args, Callable<?> action) throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> concurrent = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(insertSql, args);
+                inserted.countDown();
+                await(commit);
+            }));
+            await(inserted);
+            Future<?> result = executor.submit(action);
+            awaitBlockedSession();
+            commit.countDown();
+            concurrent.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            try {
+                result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            }
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Ждёт, пока вставка действия не повиснет на блокировке строки: короткий INSERT, который
+     * выполняется при двух проверках подряд, ждёт фиксации параллельной транзакции.
+     */
+    private void awaitBlockedSession() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        String sql = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE EXECUTING_STATEMENT LIKE 'INSERT%'";
+        int observed = 0;
+        while (observed < 2) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("The action did not block on the concurrent insert");
+            }
+            observed = jdbcTemplate.queryForObject(sql, Integer.class) > 0 ? observed + 1 : 0;
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting for the concurrent insert");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
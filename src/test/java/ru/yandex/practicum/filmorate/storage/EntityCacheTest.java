@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EntityCacheTest {
+    private final EntityCache cache = new EntityCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    private final List<Integer> loaded = new ArrayList<>();
+
+    @Test
+    void shouldLoadMissingFilmsOnceUntilChanged() {
+        assertEquals(List.of(3, 1), ids(cache.films(List.of(3, 1), this::load)));
+        assertEquals(List.of(1, 2, 3), ids(cache.films(List.of(1, 2, 3), this::load)));
+        assertEquals(2, cache.film(2, id -> load(List.of(id)).get(0)).getId());
+        assertEquals(List.of(3, 1, 2), loaded);
+
+        cache.invalidateFilm(1);
+        cache.film(1, id -> load(List.of(id)).get(0));
+        assertEquals(List.of(3, 1, 2, 1), loaded);
+        assertEquals(3, cache.filmStats().hitCount());
+        assertEquals(4, cache.filmStats().missCount());
+    }
+
+    @Test
+    void shouldNotCacheFilmsLoadedWhileOneChanged() {
+        cache.films(List.of(1, 2), ids -> {
+            cache.invalidateFilm(1);
+            return load(ids);
+        });
+        assertEquals(List.of(1, 2), ids(cache.films(List.of(1, 2), this::load)));
+        assertEquals(List.of(1, 2, 1, 2), loaded);
+    }
+
+    private List<Film> load(List<Integer> ids) {
+        loaded.addAll(ids);
+        return ids.stream()
+                .map(id -> Film.builder().id(id).build())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
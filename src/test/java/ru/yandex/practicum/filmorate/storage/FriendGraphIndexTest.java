@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FriendGraphIndexTest {
+    private FriendGraphIndex graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FriendGraphIndex();
+        graph.load(sink -> {
+            sink.accept(2, 5);
+            sink.accept(1, 4);
+            sink.accept(1, 2);
+            sink.accept(2, 4);
+            sink.accept(1, 5);
+        });
+    }
+
+    @Test
+    void shouldLoadSortedAdjacency() {
+        assertArrayEquals(new int[]{2, 4, 5}, graph.friends(1));
+        assertArrayEquals(new int[]{4, 5}, graph.friends(2));
+        assertArrayEquals(new int[0], graph.friends(3));
+        assertArrayEquals(new int[0], graph.friends(100));
+        assertArrayEquals(new int[]{4, 5}, graph.commonFriends(1, 2));
+    }
+
+    @Test
+    void shouldApplyChangesBeforeAndAfterCompaction() {
+        graph.add(1, 3);
+        graph.remove(2, 4);
+        graph.add(7, 5);
+
+        assertArrayEquals(new int[]{2, 3, 4, 5}, graph.friends(1));
+        assertArrayEquals(new int[]{5}, graph.commonFriends(2, 7));
+        assertFalse(graph.contains(2, 4));
+
+        graph.compact();
+
+        assertArrayEquals(new int[]{2, 3, 4, 5}, graph.friends(1));
+        assertArrayEquals(new int[]{5}, graph.friends(2));
+        assertArrayEquals(new int[]{5}, graph.commonFriends(1, 7));
+        assertTrue(graph.contains(7, 5));
+    }
+
+    @Test
+    void shouldSuggestFriendsOfFriendsInParallelForHighDegree() {
+        FriendGraphIndex star = new FriendGraphIndex();
+        star.load(sink -> {
+            for (int friend = 2; friend <= 2001; friend++) {
+                sink.accept(1, friend);
+                sink.accept(friend, 3000 + friend % 3);
+                sink.accept(friend, 1);
+            }
+            sink.accept(2, 5000);
+        });
+
+        assertArrayEquals(new int[]{3000, 3002, 3001, 5000}, star.suggestions(1, 10));
+        assertArrayEquals(new int[]{3000, 3002}, star.suggestions(1, 2));
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Обёртка над DataSource для тестов: запоминает текст каждого выполненного запроса
+ * и параметры его первого выполнения (для пакетов — первой строки пакета).
+ * Подключается в тест через {@code @Import(StatementRecorder.Installer.class)}.
+ */
+public class StatementRecorder extends DelegatingDataSource {
+    private final Map<String, List<Object>> statements = new LinkedHashMap<>();
+
+    public StatementRecorder(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    /**
+     * Различные запросы в порядке первого выполнения, с параметрами по порядку.
+     */
+    public synchronized Map<String, List<Object>> statements() {
+        return new LinkedHashMap<>(statements);
+    }
+
+    public synchronized void clear() {
+        statements.clear();
+    }
+
+    private synchronized void record(String sql, Map<Integer, Object> params) {
+        statements.putIfAbsent(sql, new ArrayList<>(params.values()));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(proxy, connection, method, args);
+                    if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        String sql = result instanceof PreparedStatement ? (String) args[0] : null;
+                        return wrapStatement((Statement) result, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Object wrapStatement(Statement statement, Class<?> type, String preparedSql) {
+        Map<Integer, Object> params = new TreeMap<>();
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        params.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    } else if (name.equals("clearParameters")) {
+                        params.clear();
+                    } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                        boolean withSql = args != null && args.length > 0 && args[0] instanceof String;
+                        if (withSql) {
+                            record((String) args[0], Map.of());
+                        } else if (preparedSql != null && !name.equals("executeBatch")) {
+                            record(preparedSql, params);
+                        }
+                    }
+                    return invoke(proxy, statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+        }
+    }
+
+    /**
+     * Оборачивает DataSource приложения в {@link StatementRecorder}.
+     */
+    public static class Installer implements BeanPostProcessor {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource && !(bean instanceof StatementRecorder)) {
+                return new StatementRecorder((DataSource) bean);
+            }
+            return bean;
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package ru.yandex.practicum.filmorate.storage.dao;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ConcurrentInsert;
+import ru.yandex.practicum.filmorate.storage.LikeWriteBuffer;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmDao;
 import ru.yandex.practicum.filmorate.storage.dao.film.FilmLikesDao;
 import ru.yandex.practicum.filmorate.storage.dao.film.GenreDao;
@@ -23,10 +33,13 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +53,9 @@ class FilmDaoImplTest {
     private final GenreDao genreStorage;
     private final MpaDao mpaStorage;
     private final FilmLikesDao likesStorage;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
     private Film film;
     ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
     private final Validator validator = factory.getValidator();
@@ -157,6 +173,17 @@ class FilmDaoImplTest {
         assertEquals("R", mpaStorage.getMpa(4).getName());
     }
 
+    @Test
+    void shouldThrowsIfMpaDoesNotExist() {
+        film.setMpa(new Mpa(99, null));
+
+        final NotFoundException e = assertThrows(
+                NotFoundException.class,
+                () -> filmStorage.createFilm(film)
+        );
+        assertEquals("MPA with ID = 99 does not exist", e.getMessage());
+    }
+
     @Test
     void shouldGetListAllMpa() {
         List<Mpa> listMpa = List.of(
@@ -182,7 +209,7 @@ class FilmDaoImplTest {
                         .build());
         likesStorage.like(film1.getId(), user.getId());
 
-        assertThrows(RuntimeException.class, () -> likesStorage.like(film1.getId(), user.getId()));
+        assertThrows(AlreadyExistException.class, () -> likesStorage.like(film1.getId(), user.getId()));
     }
 
     @Test
@@ -272,4 +299,345 @@ class FilmDaoImplTest {
                 .getGenres()
                 .isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetFilmsWithTheirOwnGenres() {
+        Film film1 = filmStorage.createFilm(film);
+        Film film2 = filmStorage.createFilm(
+                Film.builder()
+                        .name("some newFilm")
+                        .description("new description some film")
+                        .duration(150)
+                        .releaseDate(LocalDate.of(2001, 3, 8))
+                        .mpa(new Mpa(4, "R"))
+                        .genres(new HashSet<>())
+                        .build()
+        );
+        genreStorage.addGenreInFilm(film1.getId(), 1);
+        genreStorage.addGenreInFilm(film2.getId(), 2);
+        genreStorage.addGenreInFilm(film2.getId(), 6);
+
+        List<Film> films = filmStorage.getFilms();
+        assertEquals(2, films.size());
+        assertEquals(Set.of(genreStorage.getGenre(1)), films.get(0).getGenres());
+        assertEquals(Set.of(genreStorage.getGenre(2), genreStorage.getGenre(6)), films.get(1).getGenres());
+        assertEquals(new Mpa(4, "R"), films.get(1).getMpa());
+    }
+
+    @Test
+    void shouldStreamFilmsWithGenres() {
+        Film film1 = filmStorage.createFilm(film);
+        genreStorage.addGenreInFilm(film1.getId(), 2);
+        genreStorage.addGenreInFilm(film1.getId(), 6);
+        Film film2 = filmStorage.createFilm(
+                Film.builder()
+                        .name("some newFilm")
+                        .description("new description some film")
+                        .duration(150)
+                        .releaseDate(LocalDate.of(2001, 3, 8))
+                        .mpa(new Mpa(1, "G"))
+                        .genres(new HashSet<>())
+                        .build()
+        );
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamFilms(1, streamed::add);
+
+        assertEquals(List.of(filmStorage.getById(film1.getId()), filmStorage.getById(film2.getId())), streamed);
+        assertEquals(2, streamed.get(0).getGenres().size());
+    }
+
+    @Test
+    void shouldAddAndDeleteGenresInBatch() {
+        filmStorage.createFilm(film);
+        genreStorage.addGenresInFilm(film.getId(), List.of(1, 2, 6));
+        genreStorage.deleteGenresFromFilm(film.getId(), List.of(2));
+
+        assertEquals(Set.of(genreStorage.getGenre(1), genreStorage.getGenre(6)),
+                genreStorage.getFilmGenres(film.getId()));
+    }
+
+    @Test
+    void shouldThrowsIfUpdatedFilmDoesNotExist() {
+        film.setId(99);
+
+        final NotFoundException e = assertThrows(
+                NotFoundException.class,
+                () -> filmStorage.updateFilm(film)
+        );
+        assertEquals("Film ID = 99 does not exist", e.getMessage());
+    }
+
+    @Test
+    void shouldCreateFilmsInOneBatch() {
+        Film film2 = Film.builder()
+                .name("some newFilm")
+                .description("new description some film")
+                .duration(150)
+                .releaseDate(LocalDate.of(2001, 3, 8))
+                .mpa(new Mpa(2, null))
+                .genres(new HashSet<>())
+                .build();
+
+        List<Film> created = filmStorage.createFilms(List.of(film, film2));
+
+        assertEquals(1, created.get(0).getId());
+        assertEquals(2, created.get(1).getId());
+        assertEquals(new Mpa(2, "PG"), created.get(1).getMpa());
+        assertEquals(created, filmStorage.getFilms());
+    }
+
+    @Test
+    void shouldGetFilmsPageAfterCursor() {
+        List<Integer> films = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            film.setId(null);
+            film.setName("film " + i);
+            films.add(filmStorage.createFilm(film).getId());
+        }
+
+        Page<Film> first = filmStorage.findFilms(FilmFilter.of(null, null, null, null, null, null), 2);
+        assertEquals(films.subList(0, 2), ids(first));
+        assertEquals(films.get(1), Page.decodeCursor(first.getNextCursor()));
+
+        Page<Film> last = filmStorage.findFilms(FilmFilter.of(null, null, null, null, null, first.getNextCursor()), 2);
+        assertEquals(films.subList(2, 3), ids(last));
+        assertNull(last.getNextCursor());
+        // страница ровно до последнего фильма тоже последняя
+        assertNull(filmStorage.findFilms(FilmFilter.of(null, null, null, null, null, null), 3).getNextCursor());
+
+        likesStorage.like(films.get(2), createUser("alex"));
+        Page<Film> popular = filmStorage.findFilms(FilmFilter.of(null, null, null, null, "popular", null), 1);
+        assertArrayEquals(new int[]{1, films.get(2)}, Page.decodeCursor(popular.getNextCursor(), 2));
+    }
+
+    @Test
+    void shouldRejectInvalidFilmsPageCursor() {
+        assertThrows(ValidationException.class, () -> FilmFilter.of(null, null, null, null, null, "not a cursor"));
+        assertThrows(ValidationException.class, () -> FilmFilter.of(null, null, null, null, null, "YWJj"));
+        // курсор сортировки по популярности не подходит для сортировки по id
+        String popularCursor = Page.encodeCursor(1, 3);
+        assertThrows(ValidationException.class, () -> FilmFilter.of(null, null, null, null, null, popularCursor));
+    }
+
+    @Test
+    void shouldFindFilmsByFacetsPageByPage() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            films.add(Film.builder()
+                    .name("film " + i)
+                    .description("description")
+                    .duration(100)
+                    .releaseDate(LocalDate.of(2000 + i, 6, 1))
+                    .mpa(new Mpa(i % 2 + 1, null))
+                    .genres(new HashSet<>())
+                    .build());
+        }
+        filmStorage.createFilms(films);
+        genreStorage.addGenresInFilm(1, List.of(1));
+        genreStorage.addGenresInFilm(2, List.of(1, 2));
+        genreStorage.addGenresInFilm(4, List.of(1));
+        for (int i = 1; i <= 2; i++) {
+            User user = userStorage.createUser(User.builder()
+                    .email("user" + i + "@gmail.com")
+                    .login("user" + i)
+                    .name("User")
+                    .birthday(LocalDate.of(1980, 5, 25))
+                    .build());
+            likesStorage.like(4, user.getId());
+            if (i == 1) {
+                likesStorage.like(2, user.getId());
+            }
+        }
+
+        Page<Film> first = filmStorage.findFilms(FilmFilter.of(1, null, null, null, null, null), 2);
+        Page<Film> second = filmStorage.findFilms(FilmFilter.of(1, null, null, null, null, first.getNextCursor()), 2);
+        assertEquals(List.of(1, 2), ids(first));
+        assertEquals(Set.of(genreStorage.getGenre(1), genreStorage.getGenre(2)), first.getItems().get(1).getGenres());
+        assertEquals(List.of(4), ids(second));
+        assertNull(second.getNextCursor());
+
+        assertEquals(List.of(3), ids(filmStorage.findFilms(FilmFilter.of(null, 1, 2001, 2003, null, null), 10)));
+
+        List<Integer> popular = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Film> page = filmStorage.findFilms(FilmFilter.of(1, null, null, null, "popular", cursor), 1);
+            popular.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(List.of(4, 2, 1), popular);
+    }
+
+    @Test
+    void shouldLikeAllSkippingExistingLikes() {
+        Film film1 = filmStorage.createFilm(film);
+        User user = userStorage.createUser(
+                User.builder()
+                        .email("user1@gmail.com")
+                        .login("alex")
+                        .name("Alex")
+                        .birthday(LocalDate.of(1980, 5, 25))
+                        .build());
+        likesStorage.like(film1.getId(), user.getId());
+
+        FilmLike like = new FilmLike(film1.getId(), user.getId());
+        boolean[] inserted = likesStorage.likeAll(List.of(like, like), 10);
+
+        assertFalse(inserted[0]);
+        assertFalse(inserted[1]);
+        assertEquals(Map.of(film1.getId(), 1), filmStorage.getLikesCounts());
+    }
+
+    @Test
+    void shouldRejectLikesAddedByConcurrentTransaction() throws Exception {
+        int film1 = filmStorage.createFilm(film).getId();
+        film.setId(null);
+        film.setName("other film");
+        int film2 = filmStorage.createFilm(film).getId();
+        int user = userStorage.createUser(
+                User.builder()
+                        .email("user1@gmail.com")
+                        .login("alex")
+                        .name("Alex")
+                        .birthday(LocalDate.of(1980, 5, 25))
+                        .build()).getId();
+
+        Throwable error = new ConcurrentInsert(jdbcTemplate, transactionManager).run(
+                "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", new Object[]{film2, user},
+                () -> likesStorage.likeAll(List.of(new FilmLike(film1, user), new FilmLike(film2, user)), 10));
+
+        assertInstanceOf(AlreadyExistException.class, error);
+        // пакет откатывается целиком: лайк первого фильма и счётчики не записаны
+        assertEquals(Map.of(film1, 0, film2, 0), filmStorage.getLikesCounts());
+        assertEquals(List.of(film2), jdbcTemplate.queryForList(
+                "SELECT film_id FROM film_likes WHERE user_id = ?", Integer.class, user));
+    }
+
+    @Test
+    void shouldKeepLikesCountOnLikeAndUnlike() {
+        int film1 = filmStorage.createFilm(film).getId();
+        film.setId(null);
+        film.setName("other film");
+        int film2 = filmStorage.createFilm(film).getId();
+        int user1 = createUser("alex");
+        int user2 = createUser("bob");
+
+        likesStorage.like(film1, user1);
+        likesStorage.like(film1, user2);
+        likesStorage.likeAll(List.of(new FilmLike(film2, user1), new FilmLike(film2, user1)), 10);
+        assertEquals(Map.of(film1, 2, film2, 1), filmStorage.getLikesCounts());
+
+        assertTrue(likesStorage.unlike(film1, user2));
+        assertFalse(likesStorage.unlike(film1, user2));
+        assertEquals(Map.of(film1, 1, film2, 1), filmStorage.getLikesCounts());
+
+        likesStorage.unlikeAll(List.of(new FilmLike(film1, user1), new FilmLike(film2, user2)), 10);
+        assertEquals(Map.of(film1, 0, film2, 1), filmStorage.getLikesCounts());
+    }
+
+    @Test
+    void shouldKeepLikesCountOnCascadeDelete() {
+        int film1 = filmStorage.createFilm(film).getId();
+        film.setId(null);
+        film.setName("other film");
+        int film2 = filmStorage.createFilm(film).getId();
+        int user1 = createUser("alex");
+        int user2 = createUser("bob");
+        likesStorage.like(film1, user1);
+        likesStorage.like(film1, user2);
+        likesStorage.like(film2, user1);
+
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user1);
+        assertEquals(Map.of(film1, 1, film2, 0), filmStorage.getLikesCounts());
+
+        jdbcTemplate.update("DELETE FROM films WHERE id = ?", film1);
+        assertEquals(Map.of(film2, 0), filmStorage.getLikesCounts());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes", Integer.class));
+    }
+
+    @Test
+    void shouldGetTopFilmsOrderedByLikesCount() {
+        List<Integer> films = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            film.setId(null);
+            film.setName("film " + i);
+            films.add(filmStorage.createFilm(film).getId());
+        }
+        int user1 = createUser("alex");
+        int user2 = createUser("bob");
+        likesStorage.like(films.get(2), user1);
+        likesStorage.like(films.get(2), user2);
+        likesStorage.like(films.get(1), user1);
+
+        // при равном числе лайков фильмы идут по id
+        assertEquals(List.of(films.get(2), films.get(1), films.get(0)), ids(filmStorage.getTopFilms(3)));
+
+        // порядок берётся из счётчика, а не из агрегата по film_likes
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE id = ?", films.get(3));
+        assertEquals(List.of(films.get(3), films.get(2)), ids(filmStorage.getTopFilms(2)));
+    }
+
+    @Test
+    void shouldTimeDaoCalls() {
+        filmStorage.createFilm(film);
+        filmStorage.getFilms();
+        assertThrows(NotFoundException.class, () -> filmStorage.getById(99));
+
+        assertEquals(1, meterRegistry.get("filmorate.dao")
+                .tags("class", "FilmDaoImpl", "method", "getFilms", "exception", "none").timer().count());
+        assertEquals(1, meterRegistry.get("filmorate.dao")
+                .tags("method", "getById", "exception", "NotFoundException").timer().count());
+    }
+
+    @Test
+    void shouldCoalesceBufferedLikes() {
+        int film1 = filmStorage.createFilm(film).getId();
+        film.setId(null);
+        film.setName("other film");
+        int film2 = filmStorage.createFilm(film).getId();
+        User user = userStorage.createUser(
+                User.builder()
+                        .email("user1@gmail.com")
+                        .login("alex")
+                        .name("Alex")
+                        .birthday(LocalDate.of(1980, 5, 25))
+                        .build());
+        LikeWriteBuffer buffer = new LikeWriteBuffer(likesStorage, transactionManager, 1000, 1000, 1000, 1000, 10);
+
+        assertTrue(buffer.submit(film1, user.getId(), true, () -> true));
+        assertTrue(buffer.submit(film2, user.getId(), true, () -> true));
+        assertTrue(buffer.submit(film2, user.getId(), false, () -> true));
+        assertFalse(buffer.submit(film1, user.getId(), true, () -> false));
+        assertEquals(1, buffer.pendingCount());
+
+        List<FilmLike> visible = new ArrayList<>();
+        buffer.streamLikes(10, (filmId, userId) -> visible.add(new FilmLike(filmId, userId)));
+        assertEquals(List.of(new FilmLike(film1, user.getId())), visible);
+        assertEquals(Map.of(film1, 0, film2, 0), filmStorage.getLikesCounts());
+
+        buffer.flush();
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(Map.of(film1, 1, film2, 0), filmStorage.getLikesCounts());
+    }
+
+    private int createUser(String login) {
+        return userStorage.createUser(
+                User.builder()
+                        .email(login + "@gmail.com")
+                        .login(login)
+                        .name(login)
+                        .birthday(LocalDate.of(1980, 5, 25))
+                        .build()).getId();
+    }
+
+    private static List<Integer> ids(Page<Film> page) {
+        return ids(page.getItems());
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
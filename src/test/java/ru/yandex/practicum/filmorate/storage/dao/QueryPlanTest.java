@@ -0,0 +1,272 @@
+package ru.yandex.practicum.filmorate.storage.dao;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StatementRecorder;
+import ru.yandex.practicum.filmorate.storage.dao.film.impl.FilmDaoImpl;
+import ru.yandex.practicum.filmorate.storage.dao.film.impl.FilmFacetStatistics;
+import ru.yandex.practicum.filmorate.storage.dao.film.impl.FilmLikesDaoImpl;
+import ru.yandex.practicum.filmorate.storage.dao.film.impl.GenreDaoImpl;
+import ru.yandex.practicum.filmorate.storage.dao.user.impl.FriendDaoImpl;
+import ru.yandex.practicum.filmorate.storage.dao.user.impl.UserDaoImpl;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Регрессия планов запросов: на заполненной БД выполняет все методы DAO, собирает их запросы
+ * через {@link StatementRecorder} и проверяет EXPLAIN каждого — таблицы и индексы должны читаться
+ * по условию, а не целиком. Полное чтение допускается только для запросов из FULL_READS
+ * и для чтения первых строк индекса, уже отсортированного как нужно (LIMIT без условия на индекс).
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(StatementRecorder.Installer.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext
+class QueryPlanTest {
+    private static final int USERS = 20_000;
+    private static final int FILMS = 20_000;
+
+    /**
+     * Запросы, которые намеренно читают таблицу целиком: загрузка индексов в память при старте,
+     * выгрузки и статистика фасетов.
+     */
+    private static final Set<String> FULL_READS = Set.of(
+            "SELECT id FROM films",
+            "SELECT id FROM users",
+            "SELECT f.* FROM films AS f ORDER BY f.id",
+            "SELECT * FROM users",
+            "SELECT * FROM users ORDER BY id",
+            "SELECT id, likes_count FROM films",
+            "SELECT f.*, fg.genre_id FROM films AS f LEFT JOIN film_genres AS fg ON f.id = fg.film_id " +
+                    "ORDER BY f.id, fg.genre_id",
+            "SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id",
+            "SELECT user_id, friend_user_id FROM friendship ORDER BY user_id, friend_user_id",
+            "SELECT mpa_id, name FROM mpa ORDER BY mpa_id",
+            "SELECT genre_id, name FROM genres ORDER BY genre_id",
+            "SELECT genre_id, COUNT(*) AS films FROM film_genres GROUP BY genre_id",
+            "SELECT mpa_id, COUNT(*) AS films FROM films GROUP BY mpa_id",
+            "SELECT EXTRACT(YEAR FROM releaseDate) AS release_year, COUNT(*) AS films FROM films " +
+                    "GROUP BY release_year");
+
+    /**
+     * Обратные поиски, которых нет в DAO, но которые выполняют каскадное удаление пользователя
+     * и реактивный вариант приложения (рекомендации, удаление лайков пользователя).
+     */
+    private static final Map<String, List<Object>> REVERSE_LOOKUPS = Map.of(
+            "SELECT user_id FROM friendship WHERE friend_user_id = ?", List.of(1),
+            "SELECT film_id FROM film_likes WHERE user_id = ?", List.of(1));
+
+    /**
+     * Начало комментария H2 о способе чтения таблицы: индекс с условием, индекс целиком или tableScan.
+     */
+    private static final Pattern ACCESS = Pattern.compile("/\\* PUBLIC\\.(\\w+)(\\.tableScan \\*/| \\*/|:)");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmDaoImpl filmDao;
+    private final UserDaoImpl userDao;
+    private final FriendDaoImpl friendDao;
+    private final GenreDaoImpl genreDao;
+    private final FilmLikesDaoImpl likesDao;
+    private final FilmFacetStatistics facetStatistics;
+
+    @Test
+    void shouldReadByIndexInEveryDaoStatement() throws SQLException {
+        seed();
+        StatementRecorder recorder = dataSource.unwrap(StatementRecorder.class);
+        recorder.clear();
+
+        exerciseDaos();
+
+        Map<String, List<Object>> statements = recorder.statements();
+        statements.putAll(REVERSE_LOOKUPS);
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, List<Object>> statement : statements.entrySet()) {
+            if (FULL_READS.contains(statement.getKey())) {
+                continue;
+            }
+            String plan = explain(statement.getKey(), statement.getValue());
+            if (!readsByIndex(plan)) {
+                failures.add(statement.getKey() + "\n    " + plan.replace("\n", "\n    "));
+            }
+        }
+        assertTrue(statements.size() > 30, "DAO statements were not recorded: " + statements.keySet());
+        assertEquals(List.of(), failures, "Statements without an index access path");
+    }
+
+    private void seed() {
+        jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+                "SELECT CONCAT('user', x, '@mail.ru'), CONCAT('user', x), CONCAT('User ', x), " +
+                "DATEADD(DAY, MOD(x, 20000), DATE '1950-01-01') FROM SYSTEM_RANGE(1, ?)", USERS);
+        jdbcTemplate.update("INSERT INTO films (name, description, duration, releaseDate, mpa_id) " +
+                "SELECT CONCAT('Film ', x), CONCAT('Description ', x), 60 + MOD(x, 120), " +
+                "DATEADD(DAY, MOD(x * 37, 36500), DATE '1925-01-01'), MOD(x, 5) + 1 FROM SYSTEM_RANGE(1, ?)", FILMS);
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) " +
+                "SELECT x, MOD(x, 6) + 1 FROM SYSTEM_RANGE(1, ?) " +
+                "UNION SELECT x, MOD(x + 2, 6) + 1 FROM SYSTEM_RANGE(1, ?) WHERE MOD(x, 3) = 0", FILMS, FILMS);
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT DISTINCT MOD(x * 7919, ?) + 1, MOD(x * 31, ?) + 1 FROM SYSTEM_RANGE(1, 100000)", FILMS, USERS);
+        jdbcTemplate.update("UPDATE films AS f SET likes_count = " +
+                "(SELECT COUNT(*) FROM film_likes AS l WHERE l.film_id = f.id)");
+        jdbcTemplate.update("INSERT INTO friendship (user_id, friend_user_id) " +
+                "SELECT DISTINCT MOD(x, ?) + 1, MOD(x * 7, ?) + 1 FROM SYSTEM_RANGE(1, 100000) " +
+                "WHERE MOD(x, ?) <> MOD(x * 7, ?)", USERS, USERS, USERS, USERS);
+        jdbcTemplate.execute("ANALYZE");
+        filmDao.loadIdIndex();
+        userDao.loadIdIndex();
+        friendDao.loadFriendGraph();
+        facetStatistics.refresh();
+    }
+
+    private void exerciseDaos() {
+        Film film = filmDao.createFilm(film("New film"));
+        film.setDuration(100);
+        filmDao.updateFilm(film);
+        List<Film> films = filmDao.createFilms(List.of(film("Batch film 1"), film("Batch film 2")));
+        filmDao.getFilms();
+        filmDao.getById(1);
+        filmDao.getTopFilms(10);
+        filmDao.getByIds(List.of(3, 1, 2));
+        filmDao.getLikesCounts();
+        filmDao.streamFilms(1000, f -> {
+        });
+        filmDao.loadIdIndex();
+        for (FilmFilter filter : List.of(
+                FilmFilter.builder().build(),
+                FilmFilter.builder().popular(true).build(),
+                FilmFilter.builder().popular(true).afterLikes(3).afterId(100).build(),
+                FilmFilter.builder().genreId(5).afterId(100).build(),
+                FilmFilter.builder().genreId(1).mpaId(2).build(),
+                FilmFilter.builder().mpaId(3).popular(true).build(),
+                FilmFilter.builder().yearFrom(1990).yearTo(1991).build(),
+                FilmFilter.builder().genreId(2).yearFrom(1990).yearTo(2010).popular(true).build())) {
+            Page<Film> page = filmDao.findFilms(filter, 20);
+            assertTrue(page.getItems().size() > 0, "Empty page for " + filter);
+        }
+
+        User user = userDao.createUser(user(USERS + 1));
+        user.setName("Renamed");
+        userDao.updateUser(user);
+        List<User> users = userDao.createUsers(List.of(user(USERS + 2), user(USERS + 3)));
+        userDao.getUsers();
+        userDao.getUsersPage(100, 20);
+        userDao.getById(1);
+        userDao.streamUsers(1000, u -> {
+        });
+        userDao.loadIdIndex();
+
+        friendDao.addFriend(user.getId(), 1);
+        friendDao.addFriends(List.of(new Friendship(user.getId(), 2), new Friendship(users.get(0).getId(), 1)), 10);
+        friendDao.deleteFriend(user.getId(), 1);
+        friendDao.getAllFriends(1);
+        friendDao.getCommonFriends(1, 2);
+        friendDao.getFriendSuggestions(1, 10);
+        friendDao.streamFriendship(1000, (userId, friendId) -> {
+        });
+
+        genreDao.addGenreInFilm(film.getId(), 1);
+        genreDao.addGenresInFilm(film.getId(), List.of(2, 3));
+        genreDao.addGenresInFilms(films, 10);
+        genreDao.deleteGenresFromFilm(film.getId(), List.of(2));
+        genreDao.getFilmGenres(film.getId());
+        genreDao.deleteFilmGenre(film.getId());
+
+        likesDao.like(film.getId(), 1);
+        likesDao.likeAll(List.of(new FilmLike(film.getId(), 2), new FilmLike(films.get(0).getId(), 1)), 10);
+        likesDao.unlike(film.getId(), 1);
+        likesDao.unlikeAll(List.of(new FilmLike(film.getId(), 2)), 10);
+        likesDao.streamLikes(1000, (filmId, userId) -> {
+        });
+
+        facetStatistics.refresh();
+    }
+
+    private String explain(String sql, List<Object> params) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Каждая таблица читается по условию на индекс. Индекс без условия допустим только для первых строк
+     * в его порядке (index sorted и LIMIT) и если WHERE не ограничивает первую колонку индекса:
+     * иначе H2 мог бы начать чтение с нужного места, а обходит индекс с начала.
+     */
+    private boolean readsByIndex(String plan) {
+        boolean sortedLimit = plan.contains("/* index sorted */") && plan.contains("FETCH FIRST");
+        Matcher access = ACCESS.matcher(plan);
+        while (access.find()) {
+            String how = access.group(2);
+            if (how.contains("tableScan")) {
+                return false;
+            }
+            if (how.equals(" */") && (!sortedLimit || plan.matches(
+                    "(?s).*\"" + leadingColumn(access.group(1)) + "\" (=|<|>|IN\\().*"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String leadingColumn(String index) {
+        return jdbcTemplate.queryForObject("SELECT column_name FROM information_schema.index_columns " +
+                "WHERE index_name = ? AND ordinal_position = 1", String.class, index);
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .duration(90)
+                .releaseDate(LocalDate.of(2001, 2, 3))
+                .mpa(new Mpa(1, "G"))
+                .genres(new HashSet<>())
+                .build();
+    }
+
+    private static User user(int n) {
+        return User.builder()
+                .email("user" + n + "@mail.ru")
+                .login("user" + n)
+                .name("User " + n)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -6,9 +6,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.exception.AlreadyExistException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ConcurrentInsert;
 import ru.yandex.practicum.filmorate.storage.dao.user.UserDao;
 import ru.yandex.practicum.filmorate.storage.dao.user.impl.FriendDaoImpl;
 
@@ -30,6 +35,8 @@ import static org.junit.jupiter.api.Assertions.*;
 class UserDaoImplTest {
     private final UserDao userStorage;
     private final FriendDaoImpl friendStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
     private User user;
     ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
     private final Validator validator = factory.getValidator();
@@ -217,4 +224,114 @@ class UserDaoImplTest {
 
         assertEquals(List.of(newUser1, newUser2), friendStorage.getAllFriends(user.getId()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetUsersPageAfterId() {
+        userStorage.createUser(user);
+        User user2 = userStorage.createUser(User.builder()
+                .email("user2@gmail.com")
+                .login("user2")
+                .name("userName")
+                .birthday(LocalDate.of(1995, 7, 25))
+                .build()
+        );
+        User user3 = userStorage.createUser(User.builder()
+                .email("user3@gmail.com")
+                .login("user3")
+                .name("userName")
+                .birthday(LocalDate.of(1996, 7, 25))
+                .build()
+        );
+
+        assertEquals(List.of(user, user2), userStorage.getUsersPage(0, 2));
+        assertEquals(List.of(user3), userStorage.getUsersPage(user2.getId(), 2));
+        assertTrue(userStorage.getUsersPage(user3.getId(), 2).isEmpty());
+    }
+
+    @Test
+    void shouldCreateUsersInOneBatch() {
+        User user2 = User.builder()
+                .email("user2@gmail.com")
+                .login("user2")
+                .name("userName")
+                .birthday(LocalDate.of(1995, 7, 25))
+                .build();
+
+        List<User> created = userStorage.createUsers(List.of(user, user2));
+
+        assertEquals(1, created.get(0).getId());
+        assertEquals(2, created.get(1).getId());
+        assertEquals(created, userStorage.getUsers());
+    }
+
+    @Test
+    void shouldThrowsIfUserByIdDoesNotExist() {
+        final NotFoundException e = assertThrows(
+                NotFoundException.class,
+                () -> userStorage.getById(1)
+        );
+        assertEquals("User ID = 1 does not exist", e.getMessage());
+    }
+
+    @Test
+    void shouldReportRepeatedFriendChanges() {
+        userStorage.createUser(user);
+        User friend = userStorage.createUser(User.builder()
+                .email("alex@gmail.com")
+                .login("alex")
+                .name("Alex")
+                .birthday(LocalDate.of(1980, 5, 25))
+                .build()
+        );
+
+        assertTrue(friendStorage.addFriend(user.getId(), friend.getId()));
+        assertFalse(friendStorage.addFriend(user.getId(), friend.getId()));
+        assertTrue(friendStorage.deleteFriend(user.getId(), friend.getId()));
+        assertFalse(friendStorage.deleteFriend(user.getId(), friend.getId()));
+    }
+
+    @Test
+    void shouldRejectFriendshipAddedByConcurrentTransaction() throws Exception {
+        List<User> users = userStorage.createUsers(List.of(user,
+                User.builder().email("u2@gmail.com").login("u2").name("u2").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("u3@gmail.com").login("u3").name("u3").birthday(LocalDate.of(1990, 1, 1)).build()
+        ));
+        int first = users.get(0).getId();
+        int second = users.get(1).getId();
+        int third = users.get(2).getId();
+        ConcurrentInsert concurrentInsert = new ConcurrentInsert(jdbcTemplate, transactionManager);
+        String insert = "INSERT INTO friendship (user_id, friend_user_id) VALUES (?, ?)";
+
+        Throwable single = concurrentInsert.run(insert, new Object[]{first, second},
+                () -> friendStorage.addFriend(first, second));
+        assertInstanceOf(AlreadyExistException.class, single);
+
+        List<Friendship> friendships = List.of(new Friendship(second, third), new Friendship(third, first));
+        Throwable batch = concurrentInsert.run(insert, new Object[]{third, first},
+                () -> friendStorage.addFriends(friendships, 10));
+        assertInstanceOf(AlreadyExistException.class, batch);
+        // пакет откатывается целиком
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendship WHERE user_id = ?",
+                Integer.class, second));
+    }
+
+    @Test
+    void shouldSuggestFriendsByMutualFriends() {
+        List<User> users = userStorage.createUsers(List.of(user,
+                User.builder().email("u2@gmail.com").login("u2").name("u2").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("u3@gmail.com").login("u3").name("u3").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("u4@gmail.com").login("u4").name("u4").birthday(LocalDate.of(1990, 1, 1)).build(),
+                User.builder().email("u5@gmail.com").login("u5").name("u5").birthday(LocalDate.of(1990, 1, 1)).build()
+        ));
+        friendStorage.addFriend(1, 2);
+        friendStorage.addFriend(1, 3);
+        friendStorage.addFriend(2, 1);
+        friendStorage.addFriend(2, 5);
+        friendStorage.addFriend(2, 4);
+        friendStorage.addFriend(3, 4);
+
+        assertEquals(List.of(users.get(3), users.get(4)), friendStorage.getFriendSuggestions(1, 10));
+        assertEquals(List.of(users.get(3)), friendStorage.getFriendSuggestions(1, 1));
+        assertTrue(friendStorage.getFriendSuggestions(4, 10).isEmpty());
+    }
+}